@@ -0,0 +1,5 @@
+#!/bin/bash
+# Lets the replica from docker-compose.yaml stream WAL from this server. Runs only when the data directory
+# is initialised, so an existing postgres_data volume has to be recreated.
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
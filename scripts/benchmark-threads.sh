@@ -0,0 +1,100 @@
+#!/usr/bin/env bash
+# Compares throughput and p99 latency of the platform-thread and the virtual-thread request modes.
+#
+# Needs Java 21, the packaged jar (./mvnw -DskipTests package), a running database (docker compose up -d)
+# and hey (https://github.com/rakyll/hey). Both modes run against the same database with the same settings;
+# only spring.threads.virtual.enabled differs.
+#
+#   CONCURRENCY=2000 DURATION=60s scripts/benchmark-threads.sh
+set -euo pipefail
+
+CONCURRENCY=${CONCURRENCY:-1000}
+DURATION=${DURATION:-30s}
+PORT=${PORT:-8080}
+JAR=${JAR:-target/habits-0.0.1-SNAPSHOT.jar}
+BASE_URL="http://localhost:${PORT}/api/v1"
+RESULTS=target/benchmark
+USERNAME="bench$(date +%s)"
+PASSWORD="bench-password"
+
+mkdir -p "$RESULTS"
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" --spring.threads.virtual.enabled="$1" \
+        --spring.jpa.show-sql=false --logging.level.root=WARN > "$RESULTS/app-$2.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 60); do
+        if curl -sf "http://localhost:${PORT}/actuator/health" > /dev/null; then
+            return
+        fi
+        sleep 1
+    done
+    echo "Application did not start, see $RESULTS/app-$2.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" || true
+}
+
+login() {
+    curl -sf -X POST "$BASE_URL/auth/login" -H 'Content-Type: application/json' \
+        -d "{\"username\":\"$USERNAME\",\"password\":\"$PASSWORD\"}" \
+        | sed -n 's/.*"accessToken":"\([^"]*\)".*/\1/p'
+}
+
+# Prints requests/sec, the 99th percentile latency and the status codes of one hey run. A run with
+# non-2xx responses (a 503 from the concurrency limit, say) or transport errors marks the benchmark failed,
+# since its req/s would count rejected requests as served.
+summarize() {
+    local rps p99 codes
+    rps=$(awk '/Requests\/sec:/ {print $2}' "$1")
+    p99=$(awk '/ 99% in / {print $3}' "$1")
+    codes=$(awk '/Status code distribution:/ {on = 1; next}
+        on && /^ *\[[0-9]+\]/ {gsub(/[][]/, "", $1); printf "%s%s=%s", sep, $1, $2; sep = " "; next}
+        {on = 0}' "$1")
+    printf '%-10s %-8s %12s %12s  %s\n' "$2" "$3" "$rps" "${p99}s" "${codes:-none}"
+    if ! awk '/Status code distribution:/ {on = 1; next}
+        on && /^ *\[[0-9]+\]/ {ok = 1; if ($1 !~ /^\[2/) bad = 1; next}
+        {on = 0}
+        /Error distribution:/ {bad = 1}
+        END {exit !(ok && !bad)}' "$1"; then
+        echo "  non-2xx responses or errors, see $1" >&2
+        FAILED=1
+    fi
+}
+
+run_mode() {
+    local virtual=$1 mode=$2
+    start_app "$virtual" "$mode"
+    local token
+    token=$(login)
+    hey -z "$DURATION" -c "$CONCURRENCY" -H "Authorization: Bearer $token" \
+        "$BASE_URL/habits?limit=20" > "$RESULTS/$mode-habits.txt"
+    hey -z "$DURATION" -c "$CONCURRENCY" -m POST -T 'application/json' \
+        -d "{\"username\":\"$USERNAME\",\"password\":\"$PASSWORD\"}" \
+        "$BASE_URL/auth/login" > "$RESULTS/$mode-login.txt"
+    stop_app
+}
+
+start_app false setup
+curl -sf -X POST "$BASE_URL/auth/register" -H 'Content-Type: application/json' \
+    -d "{\"username\":\"$USERNAME\",\"email\":\"$USERNAME@example.com\",\"password\":\"$PASSWORD\",\"fullName\":\"Bench User\"}" > /dev/null
+TOKEN=$(login)
+for i in $(seq 1 20); do
+    curl -sf -X POST "$BASE_URL/habits" -H "Authorization: Bearer $TOKEN" -H 'Content-Type: application/json' \
+        -d "{\"name\":\"Habit $i\",\"frequency\":\"DAILY\",\"targetAmount\":1}" > /dev/null
+done
+stop_app
+
+run_mode false platform
+run_mode true virtual
+
+FAILED=0
+printf '%-10s %-8s %12s %12s  %s\n' endpoint mode 'req/s' p99 status
+for endpoint in habits login; do
+    summarize "$RESULTS/platform-$endpoint.txt" "$endpoint" platform
+    summarize "$RESULTS/virtual-$endpoint.txt" "$endpoint" virtual
+done
+exit "$FAILED"
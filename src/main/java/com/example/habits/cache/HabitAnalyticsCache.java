@@ -0,0 +1,108 @@
+package com.example.habits.cache;
+
+import com.example.habits.dto.habit.HabitAnalyticsResponseDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache of analytics results keyed by habit, period and the day they were computed for.
+ * Entries expire at the end of their day. Invalidating a habit stamps it with the next {@link #generation()};
+ * entries read at an earlier generation, including results still being computed, are no longer returned.
+ * The stamps are kept for a day, longer than any entry can live, and bounded like the entries themselves. When a
+ * stamp is evicted by size, entries of habits without a stamp are only returned if read at or after its generation,
+ * which may drop more entries than necessary but never returns a stale one.
+ */
+@Component
+public class HabitAnalyticsCache implements MeterBinder {
+
+    private final Cache<Key, Entry> cache;
+    private final Cache<Long, Long> invalidatedAt;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong evictedStamp = new AtomicLong();
+
+    public HabitAnalyticsCache(@Value("${habits.analytics-cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new EndOfDayExpiry())
+                .recordStats()
+                .build();
+        this.invalidatedAt = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofDays(1))
+                .<Long, Long>evictionListener((habitId, stamp, cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        evictedStamp.accumulateAndGet(stamp, Math::max);
+                    }
+                })
+                .build();
+    }
+
+    public Entry get(Long habitId, String period, LocalDate date) {
+        Key key = new Key(habitId, period, date);
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        Long invalidated = invalidatedAt.getIfPresent(habitId);
+        if (entry.generation() < (invalidated != null ? invalidated : evictedStamp.get())) {
+            cache.invalidate(key);
+            return null;
+        }
+        return entry;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(Long habitId, String period, LocalDate date, Long ownerId,
+                    HabitAnalyticsResponseDTO analytics, long readGeneration) {
+        cache.put(new Key(habitId, period, date), new Entry(ownerId, analytics, readGeneration));
+    }
+
+    public void invalidate(Long habitId) {
+        invalidatedAt.put(habitId, generation.incrementAndGet());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "habitAnalytics");
+    }
+
+    private record Key(Long habitId, String period, LocalDate date) {
+    }
+
+    public record Entry(Long ownerId, HabitAnalyticsResponseDTO analytics, long generation) {
+    }
+
+    private static class EndOfDayExpiry implements Expiry<Key, Entry> {
+
+        @Override
+        public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+            Duration untilRollover = Duration.between(LocalDateTime.now(), key.date().plusDays(1).atStartOfDay());
+            return Math.max(0, untilRollover.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Key key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.habits.cache;
+
+import com.example.habits.domain.CompletionBitmap;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-memory copy of the persisted per-habit-per-year completion bitmaps. Writers drop the entry once
+ * their transaction commits; loads and invalidations of the same key are serialized by the cache, so a bitmap
+ * read before a commit is never kept after the invalidation that follows it.
+ * <p>
+ * Reads may be served by a lagging replica, which can return a bitmap older than the last invalidation,
+ * so entries also expire after {@code ttl}.
+ */
+@Component
+public class HabitHeatmapCache implements MeterBinder {
+
+    private final Cache<Key, CompletionBitmap> cache;
+
+    public HabitHeatmapCache(@Value("${habits.heatmap-cache.max-size:20000}") long maxSize,
+                             @Value("${habits.heatmap-cache.ttl:PT1M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public CompletionBitmap get(Long habitId, int year) {
+        return cache.getIfPresent(new Key(habitId, year));
+    }
+
+    public CompletionBitmap get(Long habitId, int year, Supplier<CompletionBitmap> loader) {
+        return cache.get(new Key(habitId, year), key -> loader.get());
+    }
+
+    public void invalidate(Long habitId, int year) {
+        cache.invalidate(new Key(habitId, year));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "habitHeatmap");
+    }
+
+    private record Key(Long habitId, int year) {
+    }
+}
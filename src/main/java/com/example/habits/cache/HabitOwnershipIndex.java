@@ -0,0 +1,212 @@
+package com.example.habits.cache;
+
+import com.example.habits.repository.HabitRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory index from habit id to owner id used by authorization checks. Entries live in one open-addressing
+ * {@code long[]} (key and value side by side, linear probing, key 0 marks a free slot), so a lookup neither
+ * boxes nor allocates. Lookups run under an optimistic read stamp and only take the read lock when a write
+ * raced with them.
+ * <p>
+ * Owners never change, so entries are loaded lazily and only removed when the habits are purged.
+ * The table grows up to {@code max-entries} and is cleared when it would have to grow beyond that.
+ */
+@Component
+public class HabitOwnershipIndex implements MeterBinder {
+
+    private static final int INITIAL_SLOTS = 1024;
+    private static final long NONE = 0;
+
+    private final HabitRepository habitRepository;
+    private final int maxSlots;
+    private final StampedLock lock = new StampedLock();
+    private final AtomicLong loads = new AtomicLong();
+    private long[] table = new long[INITIAL_SLOTS * 2];
+    private int size;
+
+    public HabitOwnershipIndex(HabitRepository habitRepository,
+                               @Value("${habits.ownership-index.max-entries:1000000}") int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Ownership index size must be positive");
+        }
+        this.habitRepository = habitRepository;
+        this.maxSlots = Math.max(INITIAL_SLOTS, Integer.highestOneBit(maxEntries - 1 | 1) << 2);
+    }
+
+    /**
+     * Returns the id of the user owning the habit, or 0 when the habit does not exist.
+     */
+    public long ownerOf(long habitId) {
+        long owner = find(habitId);
+        if (owner != NONE) {
+            return owner;
+        }
+        loads.incrementAndGet();
+        Long loaded = habitRepository.findOwnerIdById(habitId).orElse(null);
+        if (loaded == null) {
+            return NONE;
+        }
+        put(habitId, loaded);
+        return loaded;
+    }
+
+    /**
+     * Throws unless the habit exists and belongs to the given user.
+     */
+    public void checkOwner(Long userId, Long habitId) {
+        long ownerId = ownerOf(habitId);
+        if (ownerId == NONE) {
+            throw new RuntimeException("Habit not found");
+        }
+        if (userId != ownerId) {
+            throw new RuntimeException("Unauthorized access to habit");
+        }
+    }
+
+    public void put(long habitId, long userId) {
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > table.length / 2) {
+                int slots = table.length / 2;
+                table = rehash(table, slots * 2 <= maxSlots ? slots * 2 : slots, slots * 2 <= maxSlots);
+            }
+            if (insert(table, habitId, userId)) {
+                size++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Drops the given habits, used once they are deleted. Each key is removed in place by shifting the rest of
+     * its probe run back, so the table is never rebuilt here.
+     */
+    public void removeAll(Collection<Long> habitIds) {
+        long stamp = lock.writeLock();
+        try {
+            for (Long habitId : habitIds) {
+                if (delete(table, habitId)) {
+                    size--;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("habits.ownership.index.size", this, HabitOwnershipIndex::size).register(registry);
+        FunctionCounter.builder("habits.ownership.index.loads", loads, AtomicLong::get).register(registry);
+    }
+
+    private long find(long habitId) {
+        long stamp = lock.tryOptimisticRead();
+        long owner = lookup(table, habitId);
+        if (lock.validate(stamp)) {
+            return owner;
+        }
+        stamp = lock.readLock();
+        try {
+            return lookup(table, habitId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static long lookup(long[] table, long key) {
+        int mask = table.length / 2 - 1;
+        int slot = hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long candidate = table[slot * 2];
+            if (candidate == key) {
+                return table[slot * 2 + 1];
+            }
+            if (candidate == NONE) {
+                return NONE;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    /**
+     * Stores the entry and returns whether the key was new. The table must have a free slot.
+     */
+    private static boolean insert(long[] table, long key, long value) {
+        int mask = table.length / 2 - 1;
+        int slot = hash(key) & mask;
+        while (table[slot * 2] != NONE && table[slot * 2] != key) {
+            slot = (slot + 1) & mask;
+        }
+        boolean added = table[slot * 2] == NONE;
+        table[slot * 2] = key;
+        table[slot * 2 + 1] = value;
+        return added;
+    }
+
+    /**
+     * Removes the key and returns whether it was present. Entries after it in the probe run move back into
+     * the gap unless their home slot lies between the gap and their current slot.
+     */
+    private static boolean delete(long[] table, long key) {
+        int mask = table.length / 2 - 1;
+        int gap = hash(key) & mask;
+        while (table[gap * 2] != key) {
+            if (table[gap * 2] == NONE) {
+                return false;
+            }
+            gap = (gap + 1) & mask;
+        }
+        int slot = (gap + 1) & mask;
+        while (table[slot * 2] != NONE) {
+            int home = hash(table[slot * 2]) & mask;
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                table[gap * 2] = table[slot * 2];
+                table[gap * 2 + 1] = table[slot * 2 + 1];
+                gap = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[gap * 2] = NONE;
+        table[gap * 2 + 1] = NONE;
+        return true;
+    }
+
+    private long[] rehash(long[] old, int slots, boolean keepEntries) {
+        long[] rehashed = new long[slots * 2];
+        size = 0;
+        if (keepEntries) {
+            for (int i = 0; i < old.length; i += 2) {
+                if (old[i] != NONE && insert(rehashed, old[i], old[i + 1])) {
+                    size++;
+                }
+            }
+        }
+        return rehashed;
+    }
+
+    private static int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+}
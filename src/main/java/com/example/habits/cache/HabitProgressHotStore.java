@@ -0,0 +1,201 @@
+package com.example.habits.cache;
+
+import com.example.habits.repository.HabitProgressRepository;
+import com.example.habits.repository.projection.DailyProgressTotal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Optional in-memory copy of the most recent days of progress, kept per habit as primitive arrays of daily
+ * totals indexed by epoch day modulo the window length. Windows are loaded lazily on the first range read,
+ * updated in place when progress commits and evicted once {@code max-habits} is exceeded.
+ * <p>
+ * A window is only cached when no write to the same habit stripe was in flight while it was loaded,
+ * so a committed write is never counted twice or missed.
+ */
+@Component
+public class HabitProgressHotStore implements MeterBinder {
+
+    private static final int STRIPES = 256;
+
+    private final HabitProgressRepository habitProgressRepository;
+    private final boolean enabled;
+    private final int windowDays;
+    private final Cache<Long, Window> windows;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final AtomicIntegerArray pendingWrites = new AtomicIntegerArray(STRIPES);
+
+    public HabitProgressHotStore(HabitProgressRepository habitProgressRepository,
+                                 @Value("${habits.hot-store.enabled:false}") boolean enabled,
+                                 @Value("${habits.hot-store.window-days:90}") int windowDays,
+                                 @Value("${habits.hot-store.max-habits:10000}") long maxHabits) {
+        if (windowDays <= 0) {
+            throw new IllegalArgumentException("Hot store window must be positive");
+        }
+        this.habitProgressRepository = habitProgressRepository;
+        this.enabled = enabled;
+        this.windowDays = windowDays;
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(maxHabits)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the totals recorded for the habit between {@code startDate} and {@code endDate} (inclusive),
+     * or {@code null} when the store is disabled or the range reaches outside the hot window.
+     */
+    public Totals sum(Long habitId, LocalDate startDate, LocalDate endDate) {
+        if (!enabled || startDate.isBefore(LocalDate.now().minusDays(windowDays - 1))) {
+            return null;
+        }
+        Window window = windows.getIfPresent(habitId);
+        if (window == null) {
+            window = load(habitId);
+        }
+        return window.sum(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+
+    /**
+     * Adds recorded progress to the cached window of the habit once the surrounding transaction commits.
+     */
+    public void recordProgress(Long habitId, LocalDate date, int completedAmount) {
+        if (!enabled) {
+            return;
+        }
+        int stripe = stripe(habitId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            generations.incrementAndGet(stripe);
+            apply(habitId, date, completedAmount);
+            return;
+        }
+        pendingWrites.incrementAndGet(stripe);
+        generations.incrementAndGet(stripe);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    apply(habitId, date, completedAmount);
+                }
+                generations.incrementAndGet(stripe);
+                pendingWrites.decrementAndGet(stripe);
+            }
+        });
+    }
+
+    /**
+     * Drops the window of a habit whose history was changed outside {@link #recordProgress}.
+     */
+    public void invalidate(Long habitId) {
+        int stripe = stripe(habitId);
+        generations.incrementAndGet(stripe);
+        windows.invalidate(habitId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, windows, "habitProgressHotStore");
+    }
+
+    private Window load(Long habitId) {
+        int stripe = stripe(habitId);
+        long readGeneration = generations.get(stripe);
+        boolean writeInFlight = pendingWrites.get(stripe) > 0;
+
+        LocalDate today = LocalDate.now();
+        Window loaded = new Window(windowDays, today.toEpochDay());
+        for (DailyProgressTotal total : habitProgressRepository.findDailyTotals(
+                habitId, today.minusDays(windowDays - 1), today)) {
+            loaded.add(total.date().toEpochDay(), (int) total.completedAmount(), (int) total.entries());
+        }
+        if (writeInFlight) {
+            return loaded;
+        }
+
+        Window cached = windows.asMap().putIfAbsent(habitId, loaded);
+        if (cached != null) {
+            return cached;
+        }
+        if (generations.get(stripe) != readGeneration) {
+            windows.asMap().remove(habitId, loaded);
+        }
+        return loaded;
+    }
+
+    private void apply(Long habitId, LocalDate date, int completedAmount) {
+        Window window = windows.getIfPresent(habitId);
+        if (window != null) {
+            window.add(date.toEpochDay(), completedAmount, 1);
+        }
+    }
+
+    private static int stripe(Long habitId) {
+        return (int) Math.floorMod(habitId, (long) STRIPES);
+    }
+
+    public record Totals(long completedAmount, long entries) {
+    }
+
+    private static final class Window {
+
+        private final int[] amounts;
+        private final int[] entries;
+        private long newestDay;
+
+        private Window(int days, long newestDay) {
+            this.amounts = new int[days];
+            this.entries = new int[days];
+            this.newestDay = newestDay;
+        }
+
+        synchronized void add(long day, int amount, int count) {
+            advanceTo(day);
+            if (day <= newestDay - amounts.length) {
+                return;
+            }
+            int slot = slot(day);
+            amounts[slot] += amount;
+            entries[slot] += count;
+        }
+
+        synchronized Totals sum(long fromDay, long toDay) {
+            advanceTo(toDay);
+            long completed = 0;
+            long count = 0;
+            for (long day = fromDay; day <= toDay; day++) {
+                int slot = slot(day);
+                completed += amounts[slot];
+                count += entries[slot];
+            }
+            return new Totals(completed, count);
+        }
+
+        private void advanceTo(long day) {
+            if (day <= newestDay) {
+                return;
+            }
+            long firstCleared = Math.max(newestDay + 1, day - amounts.length + 1);
+            for (long cleared = firstCleared; cleared <= day; cleared++) {
+                int slot = slot(cleared);
+                amounts[slot] = 0;
+                entries[slot] = 0;
+            }
+            newestDay = day;
+        }
+
+        private int slot(long day) {
+            return (int) Math.floorMod(day, (long) amounts.length);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.habits.cache;
+
+import com.example.habits.repository.HabitRepository;
+import com.example.habits.repository.UserRepository;
+import com.example.habits.repository.projection.HabitVersion;
+import com.example.habits.repository.projection.UserVersion;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded in-memory copy of the version columns behind the ETags of profiles and habits, so a conditional
+ * read can be answered with 304 without touching the entity tables. Versions are loaded on first use and
+ * dropped once the transaction that changed them commits.
+ * <p>
+ * Loads and invalidations of the same key are serialized by the cache, so a version read before a commit
+ * is never kept after the invalidation that follows it.
+ */
+@Component
+public class ResourceVersionCache implements MeterBinder {
+
+    private final UserRepository userRepository;
+    private final HabitRepository habitRepository;
+    private final Cache<Long, UserVersion> users;
+    private final Cache<Long, HabitVersion> habits;
+
+    public ResourceVersionCache(UserRepository userRepository, HabitRepository habitRepository,
+                                @Value("${habits.version-cache.max-size:50000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.habitRepository = habitRepository;
+        this.users = Caffeine.newBuilder().maximumSize(maxSize).recordStats().build();
+        this.habits = Caffeine.newBuilder().maximumSize(maxSize).recordStats().build();
+    }
+
+    public UserVersion user(Long userId) {
+        return users.get(userId, id -> userRepository.findVersionById(id).orElse(null));
+    }
+
+    public HabitVersion habit(Long habitId) {
+        return habits.get(habitId, id -> habitRepository.findVersionById(id).orElse(null));
+    }
+
+    public void invalidateUser(Long userId) {
+        users.invalidate(userId);
+    }
+
+    /**
+     * Drops the version of the habit and the habit counter of its owner.
+     */
+    public void invalidateHabit(Long habitId, Long userId) {
+        habits.invalidate(habitId);
+        users.invalidate(userId);
+    }
+
+    /**
+     * Forgets a deleted user.
+     */
+    public void evictUser(Long userId) {
+        users.invalidate(userId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, users, "userVersions");
+        CaffeineCacheMetrics.monitor(registry, habits, "habitVersions");
+    }
+}
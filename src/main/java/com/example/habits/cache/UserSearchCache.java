@@ -0,0 +1,52 @@
+package com.example.habits.cache;
+
+import com.example.habits.repository.projection.UserProfileView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived results of short user search queries. Those are the most frequent ones and match the most
+ * rows, while longer queries are selective enough to go to the database every time. Results may lag
+ * behind profile changes by up to {@code ttl}.
+ */
+@Component
+public class UserSearchCache implements MeterBinder {
+
+    private final int maxQueryLength;
+    private final Cache<Key, List<UserProfileView>> cache;
+
+    public UserSearchCache(@Value("${habits.user-search.cache.max-query-length:3}") int maxQueryLength,
+                           @Value("${habits.user-search.cache.max-size:1000}") long maxSize,
+                           @Value("${habits.user-search.cache.ttl:PT1M}") Duration ttl) {
+        this.maxQueryLength = maxQueryLength;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public List<UserProfileView> get(String query, int limit, Supplier<List<UserProfileView>> search) {
+        if (query.length() > maxQueryLength) {
+            return search.get();
+        }
+        return cache.get(new Key(query, limit), key -> List.copyOf(search.get()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "userSearch");
+    }
+
+    private record Key(String query, int limit) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.habits.config;
+
+import com.example.habits.datasource.ReplicaRoutingDataSource;
+import com.example.habits.datasource.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single auto-configured data source once a read replica
+ * ({@code habits.datasource.replica.url}) or further shards ({@code habits.sharding.urls}) are configured.
+ * Shard 0 is the database under {@code spring.datasource}, read through the replica when there is one.
+ * Flyway migrates every shard, passing the shard number as the {@code shard_id} placeholder.
+ */
+@Configuration
+@ConditionalOnExpression("!'${habits.datasource.replica.url:}'.isEmpty() or !'${habits.sharding.urls:}'.isEmpty()")
+public class DataSourceConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "habits.datasource.replica.url")
+    @ConfigurationProperties("habits.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${habits.datasource.replica.url}") String url,
+                                              @Value("${habits.datasource.replica.username:${spring.datasource.username}}") String username,
+                                              @Value("${habits.datasource.replica.password:${spring.datasource.password}}") String password) {
+        HikariDataSource replica = pool(properties, url, username, password);
+        replica.setReadOnly(true);
+        replica.setPoolName("replica");
+        return replica;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "habits.datasource.replica.url")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                             @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                                             @Value("${habits.datasource.replica.read-your-writes:PT10S}") Duration readYourWrites,
+                                                             @Value("${habits.datasource.replica.max-lag:PT5S}") Duration maxLag,
+                                                             @Value("${habits.datasource.replica.max-recent-writers:100000}") long maxRecentWriters) {
+        if (readYourWrites.compareTo(maxLag) < 0) {
+            throw new IllegalArgumentException("Read-your-writes window must not be shorter than the replica max lag");
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, readYourWrites, maxRecentWriters);
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties properties,
+                                                         @Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                         ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource,
+                                                         @Value("${habits.sharding.urls:}") String[] urls,
+                                                         @Value("${habits.sharding.username:${spring.datasource.username}}") String username,
+                                                         @Value("${habits.sharding.password:${spring.datasource.password}}") String password) {
+        List<HikariDataSource> otherShards = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource shard = pool(properties, url.strip(), username, password);
+            shard.setPoolName("shard-" + (otherShards.size() + 1));
+            otherShards.add(shard);
+        }
+        DataSource homeShard = replicaRoutingDataSource.getIfAvailable();
+        return new ShardRoutingDataSource(homeShard != null ? homeShard : primaryDataSource, otherShards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public FlywayMigrationStrategy shardedMigration(ShardRoutingDataSource shardRoutingDataSource) {
+        return flyway -> {
+            flyway.migrate();
+            for (int shard = 1; shard < shardRoutingDataSource.shardCount(); shard++) {
+                Map<String, String> placeholders = new HashMap<>(flyway.getConfiguration().getPlaceholders());
+                placeholders.put("shard_id", String.valueOf(shard));
+                Flyway.configure()
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(shardRoutingDataSource.shard(shard))
+                        .placeholders(placeholders)
+                        .load()
+                        .migrate();
+            }
+        };
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String url, String username, String password) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.getDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.habits.config;
 
+import com.example.habits.security.BoundedPasswordEncoder;
 import com.example.habits.security.JwtAuthenticationFilter;
 import com.example.habits.service.UserService;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -45,9 +49,20 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * On virtual threads BCrypt runs on the carrier threads, so at most
+     * {@code habits.virtual-threads.max-concurrent-hashes} passwords are hashed at once; 0 leaves one core free.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(Environment environment,
+                                           @Value("${habits.virtual-threads.max-concurrent-hashes:0}") int maxConcurrentHashes) {
+        PasswordEncoder encoder = new BCryptPasswordEncoder();
+        if (!Threading.VIRTUAL.isActive(environment)) {
+            return encoder;
+        }
+        int permits = maxConcurrentHashes > 0 ? maxConcurrentHashes
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return new BoundedPasswordEncoder(encoder, permits);
     }
 
     @Bean
@@ -56,10 +71,10 @@ public class SecurityConfig {
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider(UserService userService) {
+    public AuthenticationProvider authenticationProvider(UserService userService, PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 }
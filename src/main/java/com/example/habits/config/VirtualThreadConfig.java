@@ -0,0 +1,47 @@
+package com.example.habits.config;
+
+import com.example.habits.datasource.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Limits that only apply when {@code spring.threads.virtual.enabled} is set on Java 21 or later. In that mode
+ * Spring Boot runs Tomcat requests, {@code @Async} methods and {@code @Scheduled} jobs on virtual threads;
+ * on older runtimes the property has no effect and neither does this configuration.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    /**
+     * Admits {@code requests-per-connection} requests per pooled connection, so most of a request's time
+     * outside the database is not serialized behind the pools. Every pool counts: the primary, the replica
+     * and the pools of shards 1..N-1.
+     */
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            ObjectProvider<HikariDataSource> pools,
+            ObjectProvider<ShardRoutingDataSource> shardRoutingDataSource,
+            @Value("${habits.virtual-threads.requests-per-connection:4}") int requestsPerConnection,
+            @Value("${habits.virtual-threads.acquire-timeout:PT2S}") Duration acquireTimeout) {
+        int connections = pools.orderedStream().mapToInt(HikariDataSource::getMaximumPoolSize).sum();
+        ShardRoutingDataSource shards = shardRoutingDataSource.getIfAvailable();
+        if (shards != null) {
+            connections += shards.otherShards().stream().mapToInt(HikariDataSource::getMaximumPoolSize).sum();
+        }
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(connections * requestsPerConnection, acquireTimeout));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+}
@@ -1,11 +1,31 @@
 package com.example.habits.controller;
 
+import com.example.habits.datasource.ShardContext;
 import com.example.habits.dto.habit.*;
+import com.example.habits.dto.page.CursorPageDTO;
+import com.example.habits.security.CurrentUser;
+import com.example.habits.service.ExportService;
 import com.example.habits.service.HabitService;
+import com.example.habits.service.HeatmapService;
+import com.example.habits.service.ProgressImportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/habits")
@@ -13,27 +33,145 @@ import org.springframework.web.bind.annotation.*;
 public class HabitController {
 
     private final HabitService habitService;
+    private final HeatmapService heatmapService;
+    private final ExportService exportService;
+    private final ProgressImportService progressImportService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
-    public ResponseEntity<HabitResponseDTO> createHabit(@Valid @RequestBody HabitRequestDTO habitRequest) {
-        HabitResponseDTO response = habitService.createHabit(habitRequest);
+    public ResponseEntity<HabitResponseDTO> createHabit(@Valid @RequestBody HabitRequestDTO habitRequest,
+                                                        CurrentUser currentUser) {
+        HabitResponseDTO response = habitService.createHabit(currentUser.id(), habitRequest);
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping
+    public ResponseEntity<CursorPageDTO<HabitResponseDTO>> getHabits(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit,
+            WebRequest request,
+            CurrentUser currentUser) {
+        String etag = habitService.getHabitsEtag(currentUser.id());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        CursorPageDTO<HabitResponseDTO> response = habitService.getHabits(currentUser.id(), after, limit);
+        return ResponseEntity.ok().eTag(etag).body(response);
+    }
+
+    @GetMapping("/{habitId}")
+    public ResponseEntity<HabitResponseDTO> getHabit(@PathVariable Long habitId, WebRequest request,
+                                                     CurrentUser currentUser) {
+        String etag = habitService.getHabitEtag(currentUser.id(), habitId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        HabitResponseDTO response = habitService.getHabit(currentUser.id(), habitId);
+        return ResponseEntity.ok().eTag(etag).body(response);
+    }
+
     @PostMapping("/{habitId}/progress")
     public ResponseEntity<HabitProgressResponseDTO> recordProgress(
             @PathVariable Long habitId,
-            @Valid @RequestBody HabitProgressRequestDTO request) {
-        HabitProgressResponseDTO response = habitService.recordProgress(habitId, request);
+            @Valid @RequestBody HabitProgressRequestDTO request,
+            CurrentUser currentUser) {
+        HabitProgressResponseDTO response = habitService.recordProgress(currentUser.id(), habitId, request);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{habitId}/progress")
+    public ResponseEntity<CursorPageDTO<HabitProgressResponseDTO>> getProgressHistory(
+            @PathVariable Long habitId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "50") int limit,
+            CurrentUser currentUser) {
+        CursorPageDTO<HabitProgressResponseDTO> response =
+                habitService.getProgressHistory(currentUser.id(), habitId, before, limit);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/{habitId}/progress:import")
+    public ResponseEntity<HabitImportResponseDTO> importProgress(
+            @PathVariable Long habitId,
+            @RequestParam(defaultValue = "csv") String format,
+            InputStream body,
+            CurrentUser currentUser) {
+        HabitImportResponseDTO response = progressImportService.importProgress(currentUser.id(), habitId, format, body);
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/{habitId}/analytics")
     public ResponseEntity<HabitAnalyticsResponseDTO> getAnalytics(
             @PathVariable Long habitId,
-            @RequestParam String period) {
-        HabitAnalyticsResponseDTO response = habitService.getAnalytics(habitId, period);
+            @RequestParam String period,
+            CurrentUser currentUser) {
+        HabitAnalyticsResponseDTO response = habitService.getAnalytics(currentUser.id(), habitId, period);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/analytics")
+    public ResponseEntity<List<HabitAnalyticsResponseDTO>> getAnalyticsForAllHabits(@RequestParam String period,
+                                                                                    CurrentUser currentUser) {
+        List<HabitAnalyticsResponseDTO> response = habitService.getAnalyticsForAllHabits(currentUser.id(), period);
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/{habitId}/series")
+    public ResponseEntity<StreamingResponseBody> getSeries(
+            @PathVariable Long habitId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String bucket,
+            CurrentUser currentUser) {
+        HabitSeriesRequest series = habitService.prepareSeries(currentUser.id(), habitId, from, to, bucket);
+        StreamingResponseBody body = outputStream -> {
+            ShardContext.set(series.shard());
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                habitService.streamSeries(series, point -> {
+                    try {
+                        generator.writeObject(point);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            } finally {
+                ShardContext.clear();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping("/{habitId}/heatmap")
+    public ResponseEntity<HabitHeatmapResponseDTO> getHeatmap(
+            @PathVariable Long habitId,
+            @RequestParam int year,
+            CurrentUser currentUser) {
+        HabitHeatmapResponseDTO response = heatmapService.getHeatmap(currentUser.id(), habitId, year);
+        return ResponseEntity.ok().eTag(response.getEtag()).body(response);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            CurrentUser currentUser) {
+        HabitExportRequest export = exportService.prepareExport(currentUser.id(), format, gzip);
+        StreamingResponseBody body = outputStream -> {
+            ShardContext.set(export.shard());
+            try {
+                exportService.writeExport(export, outputStream);
+            } finally {
+                ShardContext.clear();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                        : MediaType.parseMediaType(export.format().getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(export.fileName()).build().toString())
+                .body(body);
+    }
+
 }
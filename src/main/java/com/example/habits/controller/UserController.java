@@ -1,8 +1,9 @@
 package com.example.habits.controller;
 
-import com.example.habits.domain.User;
+import com.example.habits.dto.page.CursorPageDTO;
 import com.example.habits.dto.user.UpdateProfileRequestDTO;
 import com.example.habits.exception.ResourceNotFoundException;
+import com.example.habits.security.CurrentUser;
 import com.example.habits.dto.user.ProfileResponseDTO;
 import com.example.habits.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -16,8 +17,8 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -35,72 +36,101 @@ public class UserController {
     @Operation(summary = "Get the profile of the authenticated user", description = "Retrieves the profile of the currently authenticated user")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Profile retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Profile unchanged since the ETag in If-None-Match"),
             @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing token"),
             @ApiResponse(responseCode = "403", description = "Forbidden - Access denied")
     })
     @GetMapping("/profile")
-    public ResponseEntity<ProfileResponseDTO> getOwnProfile() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        log.info("User {} requested their own profile", username);
-        ProfileResponseDTO profile = userService.getProfile(username);
-        return ResponseEntity.ok(profile);
+    public ResponseEntity<ProfileResponseDTO> getOwnProfile(WebRequest request, CurrentUser currentUser) {
+        log.info("User {} requested their own profile", currentUser.username());
+        String etag = userService.getOwnProfileEtag(currentUser.id());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        ProfileResponseDTO profile = userService.getProfile(currentUser.id());
+        return ResponseEntity.ok().eTag(etag).body(profile);
+    }
+
+    @Operation(summary = "Search users", description = "Finds users whose username, email or full name contains or resembles the query, best matches first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Matching users retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Query too short or too long, or invalid limit"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing token"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Access denied")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<ProfileResponseDTO>> searchUsers(
+            @Parameter(description = "Text to look for, at least 2 characters") @RequestParam String q,
+            @Parameter(description = "Maximum number of users to return") @RequestParam(defaultValue = "20") int limit,
+            CurrentUser currentUser) {
+        log.info("User {} searched users with limit={}", currentUser.username(), limit);
+        List<ProfileResponseDTO> users = userService.searchUsers(q, limit);
+        return ResponseEntity.ok(users);
     }
 
     @Operation(summary = "Get a user's profile by ID", description = "Retrieves the profile of a user by their ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Profile retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Profile unchanged since the ETag in If-None-Match"),
             @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing token"),
             @ApiResponse(responseCode = "403", description = "Forbidden - Access denied"),
             @ApiResponse(responseCode = "404", description = "User not found")
     })
     @GetMapping("/{userId}")
-    public ResponseEntity<ProfileResponseDTO> getProfile(@PathVariable Long userId) {
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        log.info("User {} requested profile of user with ID {}", currentUsername, userId);
+    public ResponseEntity<ProfileResponseDTO> getProfile(@PathVariable Long userId, WebRequest request,
+                                                         CurrentUser currentUser) {
+        log.info("User {} requested profile of user with ID {}", currentUser.username(), userId);
+        String etag = userService.getProfileEtag(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         ProfileResponseDTO profile = userService.getUserById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
 
-        return ResponseEntity.ok(profile);
+        return ResponseEntity.ok().eTag(etag).body(profile);
     }
 
 
-    @Operation(summary = "Update a user's profile by ID", description = "Updates the profile of a user by their ID")
+    @Operation(summary = "Update a user's profile by ID", description = "Updates the profile of the authenticated user. " +
+            "If-Match must carry the profile ETag being edited, so concurrent edits cannot overwrite each other; " +
+            "If-Match: * explicitly overwrites whatever version is current")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Profile updated successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid request body"),
             @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing token"),
             @ApiResponse(responseCode = "403", description = "Forbidden - Access denied"),
-            @ApiResponse(responseCode = "404", description = "User not found")
+            @ApiResponse(responseCode = "404", description = "User not found"),
+            @ApiResponse(responseCode = "409", description = "Profile changed since the ETag in If-Match, or email already in use"),
+            @ApiResponse(responseCode = "428", description = "If-Match header missing")
     })
     @PutMapping("/{userId}")
     public ResponseEntity<ProfileResponseDTO> updateProfile(
-            @Valid @RequestBody UpdateProfileRequestDTO request) {
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userService.getCurrentUser(currentUsername);
-        ProfileResponseDTO updatedProfile = userService.updateUser(currentUser.getId(), request);
+            @Valid @RequestBody UpdateProfileRequestDTO request,
+            @Parameter(description = "ETag of the profile version being edited, or * to overwrite any version") @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            CurrentUser currentUser) {
+        ProfileResponseDTO updatedProfile = userService.updateUser(currentUser.id(), request, ifMatch);
         return ResponseEntity.ok(updatedProfile);
     }
 
 
 
-    @Operation(summary = "Delete a user by ID", description = "Deletes a user by their ID")
+    @Operation(summary = "Delete a user by ID", description = "Deletes the authenticated user. The account is disabled at once and its data is removed in the background")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "204", description = "User deleted successfully"),
+            @ApiResponse(responseCode = "202", description = "User marked deleted, data removal scheduled"),
             @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing token"),
             @ApiResponse(responseCode = "403", description = "Forbidden - Access denied"),
             @ApiResponse(responseCode = "404", description = "User not found")
     })
     @DeleteMapping("/{userId}")
-    public ResponseEntity<Void> deleteUser() {
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userService.getCurrentUser(currentUsername);
-        userService.deleteUser(currentUser.getId());
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<Void> deleteUser(CurrentUser currentUser) {
+        userService.deleteUser(currentUser.id());
+        return ResponseEntity.accepted().build();
     }
 
 
 
-    @Operation(summary = "Get a paginated list of users", description = "Retrieves a list of users with pagination using limit and offset")
+    @Operation(summary = "Get a paginated list of users", description = "Retrieves users in id order, one page at a time. Pass the returned nextCursor as 'after' to read the next page")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "List of users retrieved successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid pagination parameters"),
@@ -108,15 +138,12 @@ public class UserController {
             @ApiResponse(responseCode = "403", description = "Forbidden - Access denied")
     })
     @GetMapping
-    public ResponseEntity<List<ProfileResponseDTO>> getAllUsers(
+    public ResponseEntity<CursorPageDTO<ProfileResponseDTO>> getAllUsers(
             @Parameter(description = "Maximum number of users to return") @RequestParam(defaultValue = "10") int limit,
-            @Parameter(description = "Number of users to skip (offset)") @RequestParam(defaultValue = "0") int offset) {
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        log.info("User {} requested list of users with limit={} and offset={}", currentUsername, limit, offset);
-        if (limit <= 0 || offset < 0) {
-            throw new IllegalArgumentException("Limit must be greater than 0 and offset must be non-negative");
-        }
-        List<ProfileResponseDTO> users = userService.getAllUsers(limit, offset);
+            @Parameter(description = "Cursor returned with the previous page") @RequestParam(required = false) String after,
+            CurrentUser currentUser) {
+        log.info("User {} requested list of users with limit={} and after={}", currentUser.username(), limit, after);
+        CursorPageDTO<ProfileResponseDTO> users = userService.getAllUsers(after, limit);
         return ResponseEntity.ok(users);
     }
 
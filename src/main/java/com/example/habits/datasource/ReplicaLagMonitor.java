@@ -0,0 +1,71 @@
+package com.example.habits.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Measures how far the replica's replay is behind the primary and lets reads go to the replica only while
+ * the lag is within {@code habits.datasource.replica.max-lag}. A replica that cannot be queried counts as
+ * unavailable. An idle primary produces no WAL, so a replica that has replayed everything reports no lag.
+ */
+@Component
+@ConditionalOnProperty(name = "habits.datasource.replica.url")
+public class ReplicaLagMonitor implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String LAG_SQL = "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final Duration maxLag;
+    private volatile double lagSeconds = -1;
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routingDataSource,
+                             @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                             @Value("${habits.datasource.replica.max-lag:PT5S}") Duration maxLag) {
+        this.routingDataSource = routingDataSource;
+        this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.maxLag = maxLag;
+    }
+
+    @Scheduled(fixedDelayString = "${habits.datasource.replica.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        boolean available;
+        try {
+            Double seconds = replicaJdbcTemplate.queryForObject(LAG_SQL, Double.class);
+            lagSeconds = seconds != null ? seconds : 0;
+            available = Duration.ofMillis(Math.round(lagSeconds * 1000)).compareTo(maxLag) <= 0;
+        } catch (DataAccessException e) {
+            lagSeconds = -1;
+            available = false;
+        }
+        if (available != routingDataSource.isReplicaAvailable()) {
+            log.info("Replica {} for reads, lag {} s", available ? "enabled" : "disabled", lagSeconds);
+        }
+        routingDataSource.setReplicaAvailable(available);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("habits.datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Replay lag of the read replica in seconds, -1 when it cannot be queried")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.habits.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the shard the current thread works against. Requests run on the shard of the authenticated user,
+ * see {@link com.example.habits.security.JwtAuthenticationFilter}; anything that did not pick a shard
+ * uses shard 0.
+ * <p>
+ * A transaction keeps the connection it started with, so the shard has to be chosen before it begins.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : 0;
+    }
+
+    public static void set(int shard) {
+        CURRENT.set(shard);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs the action on the given shard and restores the previous shard afterwards.
+     */
+    public static <T> T call(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public static void run(int shard, Runnable action) {
+        call(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
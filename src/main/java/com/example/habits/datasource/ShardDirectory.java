@@ -0,0 +1,153 @@
+package com.example.habits.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Supplier;
+
+/**
+ * Knows which shard holds a user. Every row of a user, from the account to its habits and progress, lives
+ * on one shard: new accounts are placed by a hash of the username, and ids generated by the V13
+ * {@code next_shard_id()} function carry the shard in their low bits. Ids below {@link #FIRST_SHARDED_ID}
+ * predate sharding and belong to shard 0.
+ * <p>
+ * Lookups and {@link #scatter} take their own connections, so they must not run inside a transaction that
+ * is expected to see their result.
+ * <p>
+ * The unique constraint on {@code users.email} only covers one shard, so with several shards every email in
+ * use is also claimed in the {@code email_directory} table of shard 0 (V14). Claims commit on their own,
+ * before the user row is written. Emails stored before V14 have no claim; callers keep checking all shards
+ * for them.
+ */
+@Component
+public class ShardDirectory {
+
+    public static final int MAX_SHARDS = 1024;
+
+    static final long FIRST_SHARDED_ID = (1L << 32) * MAX_SHARDS;
+
+    private final int shardCount;
+    private final JdbcTemplate shardJdbcTemplate;
+    private final Cache<String, Integer> usernameShards;
+
+    public ShardDirectory(Optional<ShardRoutingDataSource> routingDataSource,
+                          @Value("${habits.sharding.directory-cache-size:100000}") long cacheSize,
+                          @Value("${habits.sharding.directory-ttl:PT10M}") Duration ttl) {
+        this.shardCount = routingDataSource.map(ShardRoutingDataSource::shardCount).orElse(1);
+        this.shardJdbcTemplate = routingDataSource.map(JdbcTemplate::new).orElse(null);
+        this.usernameShards = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public void forEachShard(Runnable action) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            ShardContext.run(shard, action);
+        }
+    }
+
+    /**
+     * Runs the action once on every shard and returns the results in shard order.
+     */
+    public <T> List<T> scatter(Supplier<T> action) {
+        List<T> results = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            results.add(ShardContext.call(shard, action));
+        }
+        return results;
+    }
+
+    /**
+     * The shard a new account with this username is created on.
+     */
+    public int homeShardOf(String username) {
+        return Math.floorMod(username.hashCode(), shardCount);
+    }
+
+    /**
+     * The shard holding the account with this username, or its home shard when there is no such account.
+     */
+    public int shardOfUsername(String username) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        Integer cached = usernameShards.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+        int home = homeShardOf(username);
+        for (int i = 0; i < shardCount; i++) {
+            int shard = (home + i) % shardCount;
+            Boolean exists = ShardContext.call(shard, () -> shardJdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM users WHERE username = ?)", Boolean.class, username));
+            if (Boolean.TRUE.equals(exists)) {
+                usernameShards.put(username, shard);
+                return shard;
+            }
+        }
+        return home;
+    }
+
+    public void remember(String username, int shard) {
+        usernameShards.put(username, shard);
+    }
+
+    /**
+     * Claims the email for the user on the given shard. Returns false when another user holds it; claiming
+     * an email the same user already holds succeeds.
+     */
+    public boolean claimEmail(String email, String username, int shard) {
+        if (shardCount == 1) {
+            return true;
+        }
+        return ShardContext.call(0, () -> {
+            try {
+                shardJdbcTemplate.update("INSERT INTO email_directory (email, username, shard) VALUES (?, ?, ?)",
+                        email, username, shard);
+                return true;
+            } catch (DuplicateKeyException e) {
+                return shardJdbcTemplate.queryForList("SELECT username FROM email_directory WHERE email = ?",
+                        String.class, email).contains(username);
+            }
+        });
+    }
+
+    public void releaseEmail(String email, String username) {
+        if (shardCount > 1) {
+            ShardContext.run(0, () -> shardJdbcTemplate.update(
+                    "DELETE FROM email_directory WHERE email = ? AND username = ?", email, username));
+        }
+    }
+
+    /**
+     * Releases every email the user claimed except the one it now uses.
+     */
+    public void releaseEmailsExcept(String username, String email) {
+        if (shardCount > 1) {
+            ShardContext.run(0, () -> shardJdbcTemplate.update(
+                    "DELETE FROM email_directory WHERE username = ? AND email <> ?", username, email));
+        }
+    }
+
+    /**
+     * The shard holding the user with this id, or empty when the id cannot belong to any configured shard.
+     */
+    public OptionalInt shardOfUser(long userId) {
+        int shard = userId < FIRST_SHARDED_ID ? 0 : (int) Math.floorMod(userId, (long) MAX_SHARDS);
+        return shard < shardCount ? OptionalInt.of(shard) : OptionalInt.empty();
+    }
+}
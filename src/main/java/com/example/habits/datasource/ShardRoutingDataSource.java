@@ -0,0 +1,67 @@
+package com.example.habits.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends connections to the database of the shard in {@link ShardContext}. Shard 0 is the home database
+ * configured under {@code spring.datasource}; the pools of the other shards are owned and closed by this
+ * data source.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final List<DataSource> shards = new ArrayList<>();
+    private final List<HikariDataSource> ownedShards;
+
+    public ShardRoutingDataSource(DataSource homeShard, List<HikariDataSource> otherShards) {
+        if (otherShards.size() + 1 > ShardDirectory.MAX_SHARDS) {
+            throw new IllegalArgumentException("At most " + ShardDirectory.MAX_SHARDS + " shards are supported");
+        }
+        this.ownedShards = List.copyOf(otherShards);
+        shards.add(homeShard);
+        shards.addAll(otherShards);
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public DataSource shard(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * The pools of shards 1..N-1; shard 0 is a bean of its own.
+     */
+    public List<HikariDataSource> otherShards() {
+        return ownedShards;
+    }
+
+    @Override
+    protected Integer determineCurrentLookupKey() {
+        int shard = ShardContext.current();
+        if (shard < 0 || shard >= shards.size()) {
+            throw new IllegalStateException("Unknown shard " + shard);
+        }
+        return shard;
+    }
+
+    @Override
+    public void close() {
+        ownedShards.forEach(HikariDataSource::close);
+    }
+}
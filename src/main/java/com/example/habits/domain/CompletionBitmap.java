@@ -0,0 +1,109 @@
+package com.example.habits.domain;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Immutable year-at-a-glance view of a habit: one completion bit and one amount per day of the year.
+ * Serialized as a 46-byte bitmap followed by 366 unsigned varint amounts, so an idle year takes 412 bytes.
+ */
+public final class CompletionBitmap {
+
+    public static final int DAYS = 366;
+    private static final int BITMAP_BYTES = (DAYS + 7) / 8;
+
+    private final byte[] bits;
+    private final int[] amounts;
+
+    private CompletionBitmap(byte[] bits, int[] amounts) {
+        this.bits = bits;
+        this.amounts = amounts;
+    }
+
+    public static CompletionBitmap empty() {
+        return new CompletionBitmap(new byte[BITMAP_BYTES], new int[DAYS]);
+    }
+
+    public static CompletionBitmap decode(byte[] data) {
+        if (data.length < BITMAP_BYTES) {
+            throw new IllegalArgumentException("Bitmap data is truncated");
+        }
+        byte[] bits = Arrays.copyOf(data, BITMAP_BYTES);
+        int[] amounts = new int[DAYS];
+        int position = BITMAP_BYTES;
+        for (int day = 0; day < DAYS; day++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            amounts[day] = value;
+        }
+        return new CompletionBitmap(bits, amounts);
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BITMAP_BYTES + DAYS);
+        out.write(bits, 0, BITMAP_BYTES);
+        for (int amount : amounts) {
+            int value = amount;
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns a copy with the amount of the given day (1-based) replaced.
+     */
+    public CompletionBitmap withDay(int dayOfYear, int amount, boolean completed) {
+        int index = dayOfYear - 1;
+        byte[] newBits = bits.clone();
+        int[] newAmounts = amounts.clone();
+        newAmounts[index] = amount;
+        if (completed) {
+            newBits[index >> 3] |= (byte) (1 << (index & 7));
+        } else {
+            newBits[index >> 3] &= (byte) ~(1 << (index & 7));
+        }
+        return new CompletionBitmap(newBits, newAmounts);
+    }
+
+    public boolean isCompleted(int dayOfYear) {
+        int index = dayOfYear - 1;
+        return (bits[index >> 3] & (1 << (index & 7))) != 0;
+    }
+
+    public int amount(int dayOfYear) {
+        return amounts[dayOfYear - 1];
+    }
+
+    public int completedDays() {
+        int count = 0;
+        for (byte b : bits) {
+            count += Integer.bitCount(b & 0xFF);
+        }
+        return count;
+    }
+
+    public byte[] bits() {
+        return bits.clone();
+    }
+
+    public int[] amounts() {
+        return amounts.clone();
+    }
+
+    public long checksum() {
+        CRC32 crc = new CRC32();
+        crc.update(encode());
+        return crc.getValue();
+    }
+}
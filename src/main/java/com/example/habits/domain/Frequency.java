@@ -1,5 +1,27 @@
 package com.example.habits.domain;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
 public enum Frequency {
-    DAILY, WEEKLY
+    DAILY, WEEKLY;
+
+    /**
+     * First day of the period (the day itself, or the ISO week's Monday) that contains the given date.
+     */
+    public LocalDate periodStart(LocalDate date) {
+        return this == DAILY ? date : date.with(DayOfWeek.MONDAY);
+    }
+
+    public LocalDate previousPeriodStart(LocalDate periodStart) {
+        return this == DAILY ? periodStart.minusDays(1) : periodStart.minusWeeks(1);
+    }
+
+    /**
+     * A streak is still alive while its last completed period is the current or the previous one.
+     */
+    public boolean isStreakAlive(LocalDate lastCompletedPeriod, LocalDate today) {
+        return lastCompletedPeriod != null
+                && !lastCompletedPeriod.isBefore(previousPeriodStart(periodStart(today)));
+    }
 }
@@ -4,13 +4,20 @@ package com.example.habits.domain;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.time.LocalDate;
 
 @Entity
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "habits")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "habits")
 public class Habit {
 
     @Id
@@ -29,5 +36,24 @@ public class Habit {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private User user;
+
+    @Column(nullable = false)
+    private int currentStreak;
+
+    @Column(nullable = false)
+    private int longestStreak;
+
+    private LocalDate lastCompletedPeriod;
+
+    private LocalDate currentPeriodStart;
+
+    @Column(nullable = false)
+    private int currentPeriodAmount;
+
+    @Version
+    @Column(nullable = false)
+    private long version;
 }
@@ -3,7 +3,9 @@ package com.example.habits.domain;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDate;
 
@@ -26,5 +28,7 @@ public class HabitProgress {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "habit_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Habit habit;
 }
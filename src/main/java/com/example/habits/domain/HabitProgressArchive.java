@@ -0,0 +1,38 @@
+package com.example.habits.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Archived progress of one habit for one month. Index {@code i} of both arrays holds the totals of day
+ * {@code i + 1} of the month; days without progress, or past the end of the month, are 0.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "habit_progress_archive")
+public class HabitProgressArchive {
+
+    public static final int DAYS = 31;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "habit_id", nullable = false)
+    private Long habitId;
+
+    @Column(name = "archive_month", nullable = false)
+    private LocalDate month;
+
+    @Column(name = "day_amounts", nullable = false)
+    private int[] dayAmounts;
+
+    @Column(name = "day_entries", nullable = false)
+    private int[] dayEntries;
+}
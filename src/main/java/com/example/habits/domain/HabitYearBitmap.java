@@ -0,0 +1,27 @@
+package com.example.habits.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "habit_year_bitmaps")
+public class HabitYearBitmap {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "habit_id", nullable = false)
+    private Long habitId;
+
+    @Column(name = "bitmap_year", nullable = false)
+    private int year;
+
+    @Column(nullable = false)
+    private byte[] data;
+}
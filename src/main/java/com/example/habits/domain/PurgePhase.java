@@ -0,0 +1,19 @@
+package com.example.habits.domain;
+
+/**
+ * Steps of an account purge, in the order they run. Rows that reference others are removed first, so
+ * no step relies on {@code ON DELETE CASCADE}.
+ */
+public enum PurgePhase {
+    PROGRESS,
+    ARCHIVE,
+    BITMAPS,
+    HABITS,
+    TOKENS,
+    USER,
+    DONE;
+
+    public PurgePhase next() {
+        return this == DONE ? DONE : values()[ordinal() + 1];
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.habits.domain;
+
+import java.util.Locale;
+
+public enum SeriesBucket {
+    DAY, WEEK, MONTH;
+
+    public static SeriesBucket fromValue(String value) {
+        try {
+            return SeriesBucket.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid bucket: " + value);
+        }
+    }
+
+    /**
+     * Field name understood by PostgreSQL's {@code date_trunc} and interval literals.
+     */
+    public String sqlUnit() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
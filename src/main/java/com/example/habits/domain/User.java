@@ -4,13 +4,21 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.Instant;
 import java.util.Collection;
 
 @Entity
 @Table(name = "users")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-natural-id")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,6 +28,7 @@ public class User implements UserDetails {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @NaturalId
     @Column(nullable = false, unique = true)
     private String username;
 
@@ -32,6 +41,25 @@ public class User implements UserDetails {
     @Column(name = "full_name")
     private String fullName;
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    /**
+     * Bumped in the database whenever any habit of the user changes; never written through the entity.
+     * Loaded entities (including cached ones) may hold a stale value, read it through
+     * {@code UserRepository.findVersionById} instead.
+     */
+    @ColumnDefault("0")
+    @Column(name = "habits_version", nullable = false, insertable = false, updatable = false)
+    private long habitsVersion;
+
+    /**
+     * Set when the account is deleted; the row itself is removed later by the purge job.
+     */
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
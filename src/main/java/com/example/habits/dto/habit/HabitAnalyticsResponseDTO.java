@@ -5,10 +5,13 @@ import lombok.Data;
 @Data
 public class HabitAnalyticsResponseDTO {
 
+    private Long habitId;
     private String habitName;
     private String period;
     private int totalTarget;
     private int totalCompleted;
     private String completionPercentage;
+    private int currentStreak;
+    private int longestStreak;
 
 }
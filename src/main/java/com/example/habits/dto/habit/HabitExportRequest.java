@@ -0,0 +1,13 @@
+package com.example.habits.dto.habit;
+
+import com.example.habits.domain.HistoryFormat;
+
+/**
+ * An export request resolved to its user and shard in the request thread, ready to be streamed.
+ */
+public record HabitExportRequest(Long userId, HistoryFormat format, boolean gzip, int shard) {
+
+    public String fileName() {
+        return "habits-export." + format.getExtension() + (gzip ? ".gz" : "");
+    }
+}
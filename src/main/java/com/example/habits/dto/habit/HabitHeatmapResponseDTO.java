@@ -0,0 +1,16 @@
+package com.example.habits.dto.habit;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+@Data
+public class HabitHeatmapResponseDTO {
+    private Long habitId;
+    private int year;
+    private int completedDays;
+    private byte[] completionBitmap;
+    private int[] amounts;
+
+    @JsonIgnore
+    private String etag;
+}
@@ -0,0 +1,14 @@
+package com.example.habits.dto.habit;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HabitImportResponseDTO {
+    private Long habitId;
+    private long importedRows;
+    private int importedDays;
+}
@@ -2,8 +2,11 @@ package com.example.habits.dto.habit;
 
 import com.example.habits.domain.Frequency;
 import com.example.habits.domain.Habit;
+import com.example.habits.repository.projection.HabitView;
 import lombok.Data;
 
+import java.time.LocalDate;
+
 @Data
 public class HabitResponseDTO {
     private Long id;
@@ -11,6 +14,9 @@ public class HabitResponseDTO {
     private Frequency frequency;
     private int targetAmount;
     private Long userId;
+    private int currentStreak;
+    private int longestStreak;
+    private LocalDate lastCompletedPeriod;
 
     public static HabitResponseDTO fromEntity(Habit habit) {
         HabitResponseDTO dto = new HabitResponseDTO();
@@ -19,6 +25,24 @@ public class HabitResponseDTO {
         dto.setFrequency(habit.getFrequency());
         dto.setTargetAmount(habit.getTargetAmount());
         dto.setUserId(habit.getUser().getId());
+        boolean streakAlive = habit.getFrequency().isStreakAlive(habit.getLastCompletedPeriod(), LocalDate.now());
+        dto.setCurrentStreak(streakAlive ? habit.getCurrentStreak() : 0);
+        dto.setLongestStreak(habit.getLongestStreak());
+        dto.setLastCompletedPeriod(habit.getLastCompletedPeriod());
+        return dto;
+    }
+
+    public static HabitResponseDTO fromView(HabitView view) {
+        HabitResponseDTO dto = new HabitResponseDTO();
+        dto.setId(view.id());
+        dto.setName(view.name());
+        dto.setFrequency(view.frequency());
+        dto.setTargetAmount(view.targetAmount());
+        dto.setUserId(view.userId());
+        boolean streakAlive = view.frequency().isStreakAlive(view.lastCompletedPeriod(), LocalDate.now());
+        dto.setCurrentStreak(streakAlive ? view.currentStreak() : 0);
+        dto.setLongestStreak(view.longestStreak());
+        dto.setLastCompletedPeriod(view.lastCompletedPeriod());
         return dto;
     }
 }
@@ -0,0 +1,12 @@
+package com.example.habits.dto.habit;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class HabitSeriesPointDTO {
+    private LocalDate bucketStart;
+    private int totalCompleted;
+    private int totalTarget;
+}
@@ -0,0 +1,13 @@
+package com.example.habits.dto.habit;
+
+import com.example.habits.domain.SeriesBucket;
+
+import java.time.LocalDate;
+
+/**
+ * A series request that already passed ownership and range validation and can be streamed. Carries the shard
+ * of the request thread, since the body is written on another thread.
+ */
+public record HabitSeriesRequest(Long habitId, int targetAmount, LocalDate from, LocalDate to, SeriesBucket bucket,
+                                 int shard) {
+}
@@ -1,6 +1,7 @@
 package com.example.habits.dto.user;
 
 import com.example.habits.domain.User;
+import com.example.habits.repository.projection.UserProfileView;
 import lombok.Data;
 
 @Data
@@ -18,4 +19,13 @@ public class ProfileResponseDTO {
         dto.setFullName(user.getFullName());
         return dto;
     }
+
+    public static ProfileResponseDTO fromView(UserProfileView view) {
+        ProfileResponseDTO dto = new ProfileResponseDTO();
+        dto.setId(view.id());
+        dto.setUsername(view.username());
+        dto.setEmail(view.email());
+        dto.setFullName(view.fullName());
+        return dto;
+    }
 }
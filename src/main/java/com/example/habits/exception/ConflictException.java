@@ -0,0 +1,7 @@
+package com.example.habits.exception;
+
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
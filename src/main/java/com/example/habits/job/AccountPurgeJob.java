@@ -0,0 +1,76 @@
+package com.example.habits.job;
+
+import com.example.habits.datasource.ShardDirectory;
+import com.example.habits.domain.PurgePhase;
+import com.example.habits.repository.AccountPurgeRepository;
+import com.example.habits.repository.projection.AccountPurgeState;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Removes everything owned by accounts marked deleted, one bounded chunk per transaction. Each run does at
+ * most {@code habits.account-purge.max-chunks} chunks, so a large account is purged over several runs
+ * instead of in one long transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class AccountPurgeJob {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountPurgeJob.class);
+
+    private final AccountPurgeRepository purgeRepository;
+    private final ShardDirectory shardDirectory;
+
+    @Value("${habits.account-purge.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${habits.account-purge.max-chunks:200}")
+    private int maxChunks;
+
+    @Value("${habits.account-purge.max-accounts:10}")
+    private int maxAccounts;
+
+    @Scheduled(fixedDelayString = "${habits.account-purge.interval-ms:60000}")
+    public void purgeDeletedAccounts() {
+        shardDirectory.forEachShard(this::purgeShard);
+    }
+
+    private void purgeShard() {
+        int chunks = 0;
+        for (AccountPurgeState purge : purgeRepository.findPending(maxAccounts)) {
+            if (chunks >= maxChunks) {
+                break;
+            }
+            try {
+                chunks += purge(purge, maxChunks - chunks);
+            } catch (RuntimeException e) {
+                log.warn("Failed to purge account {} in phase {}: {}", purge.userId(), purge.phase(), e.getMessage());
+            }
+        }
+    }
+
+    private int purge(AccountPurgeState purge, int chunkBudget) {
+        PurgePhase phase = purge.phase();
+        long purgedRows = purge.purgedRows();
+        int chunks = 0;
+        while (phase != PurgePhase.DONE && chunks < chunkBudget) {
+            int deleted = purgeRepository.purgeChunk(purge.userId(), phase, chunkSize);
+            purgedRows += deleted;
+            chunks++;
+            if (deleted < chunkSize) {
+                phase = phase.next();
+                purgeRepository.advance(purge.userId(), phase);
+            }
+        }
+        if (phase == PurgePhase.DONE) {
+            log.info("Account {} purged: {} rows deleted", purge.userId(), purgedRows);
+        } else {
+            log.info("Account {} purge paused in phase {}: {} rows deleted so far", purge.userId(), phase, purgedRows);
+        }
+        return chunks;
+    }
+}
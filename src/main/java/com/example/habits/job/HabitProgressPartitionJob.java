@@ -0,0 +1,70 @@
+package com.example.habits.job;
+
+import com.example.habits.datasource.ShardDirectory;
+import com.example.habits.repository.HabitProgressPartitionRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+
+/**
+ * Keeps monthly {@code habit_progress} partitions created ahead of time so inserts never fall into the
+ * default partition, and applies the optional retention. With a retention of N months, partitions whose
+ * month ended more than N months ago are detached (kept as standalone tables) or dropped.
+ * A retention of 0 keeps all history.
+ */
+@Component
+@RequiredArgsConstructor
+public class HabitProgressPartitionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(HabitProgressPartitionJob.class);
+
+    private final HabitProgressPartitionRepository partitionRepository;
+    private final ShardDirectory shardDirectory;
+
+    @Value("${habits.progress-partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${habits.progress-partitions.retention-months:0}")
+    private int retentionMonths;
+
+    @Value("${habits.progress-partitions.drop-expired:false}")
+    private boolean dropExpired;
+
+    @Scheduled(cron = "${habits.progress-partitions.cron:0 0 2 * * *}")
+    public void maintainPartitions() {
+        shardDirectory.forEachShard(this::maintainShardPartitions);
+    }
+
+    private void maintainShardPartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            partitionRepository.createPartition(current.plusMonths(i));
+        }
+        if (retentionMonths <= 0) {
+            return;
+        }
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (YearMonth month : partitionRepository.findPartitionMonths()) {
+            if (!month.isBefore(oldestKept)) {
+                continue;
+            }
+            try {
+                if (dropExpired) {
+                    partitionRepository.dropPartition(month);
+                    log.info("Dropped habit_progress partition for {}", month);
+                } else {
+                    partitionRepository.detachPartition(month);
+                    log.info("Detached habit_progress partition for {}", month);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to expire habit_progress partition for {}: {}", month, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.habits.job;
+
+import com.example.habits.datasource.ShardDirectory;
+import com.example.habits.repository.HabitProgressArchiveRepository;
+import com.example.habits.repository.HabitRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Moves progress older than {@code habits.archive.after-months} whole months into the monthly archive.
+ * Habits are walked in id ranges of {@code batch-size}, and each transaction moves at most
+ * {@code batch-rows} progress rows of one range, however long the history of its habits is. Reads of
+ * per-day totals merge the archive back in, so nothing changes for callers except the size of
+ * {@code habit_progress}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProgressArchiveJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ProgressArchiveJob.class);
+
+    // Analytics read individual entries of up to the last month, which must never be archived.
+    private static final int MIN_AFTER_MONTHS = 2;
+
+    private final HabitRepository habitRepository;
+    private final HabitProgressArchiveRepository archiveRepository;
+    private final ShardDirectory shardDirectory;
+
+    @Value("${habits.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${habits.archive.after-months:12}")
+    private int afterMonths;
+
+    @Value("${habits.archive.batch-size:100}")
+    private int batchSize;
+
+    @Value("${habits.archive.batch-rows:10000}")
+    private int batchRows;
+
+    @Scheduled(cron = "${habits.archive.cron:0 0 4 * * *}")
+    public void archiveOldProgress() {
+        if (!enabled) {
+            return;
+        }
+        if (afterMonths < MIN_AFTER_MONTHS) {
+            log.warn("Progress archive skipped: after-months must be at least {}", MIN_AFTER_MONTHS);
+            return;
+        }
+
+        LocalDate before = LocalDate.now().withDayOfMonth(1).minusMonths(afterMonths);
+        shardDirectory.forEachShard(() -> archiveShard(before));
+    }
+
+    private void archiveShard(LocalDate before) {
+        long lastId = 0;
+        long archivedRows = 0;
+        List<Long> ids;
+        do {
+            ids = habitRepository.findIdsAfter(lastId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            Long firstId = ids.get(0);
+            Long batchLastId = ids.get(ids.size() - 1);
+            try {
+                long moved;
+                do {
+                    moved = archiveRepository.archiveProgressBefore(firstId, batchLastId, before, batchRows);
+                    archivedRows += moved;
+                } while (moved == batchRows);
+            } catch (RuntimeException e) {
+                log.warn("Failed to archive progress of habits {}..{}: {}", firstId, batchLastId, e.getMessage());
+            }
+            lastId = batchLastId;
+        } while (ids.size() == batchSize);
+        log.info("Progress archive finished: {} progress rows archived from before {}", archivedRows, before);
+    }
+}
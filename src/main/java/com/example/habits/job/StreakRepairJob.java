@@ -0,0 +1,56 @@
+package com.example.habits.job;
+
+import com.example.habits.datasource.ShardDirectory;
+import com.example.habits.repository.HabitRepository;
+import com.example.habits.service.StreakService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rebuilds the persisted streaks of every habit from its progress history, one habit per transaction.
+ * Streaks are maintained incrementally on each write; this job only corrects drift.
+ */
+@Component
+@RequiredArgsConstructor
+public class StreakRepairJob {
+
+    private static final Logger log = LoggerFactory.getLogger(StreakRepairJob.class);
+
+    private final HabitRepository habitRepository;
+    private final StreakService streakService;
+    private final ShardDirectory shardDirectory;
+
+    @Value("${habits.streaks.repair-batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(cron = "${habits.streaks.repair-cron:0 30 3 * * *}")
+    public void repairAll() {
+        shardDirectory.forEachShard(this::repairShard);
+    }
+
+    private void repairShard() {
+        long lastId = 0;
+        int repaired = 0;
+        List<Long> ids;
+        do {
+            ids = habitRepository.findIdsAfter(lastId, PageRequest.of(0, batchSize));
+            for (Long id : ids) {
+                try {
+                    streakService.recomputeStreaks(id);
+                    repaired++;
+                } catch (RuntimeException e) {
+                    log.warn("Failed to repair streaks of habit {}: {}", id, e.getMessage());
+                }
+                lastId = id;
+            }
+        } while (!ids.isEmpty());
+        log.info("Streak repair finished for {} habits", repaired);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.habits.repository;
+
+import com.example.habits.cache.HabitOwnershipIndex;
+import com.example.habits.datasource.ShardDirectory;
+import com.example.habits.domain.Habit;
+import com.example.habits.domain.PurgePhase;
+import com.example.habits.domain.User;
+import com.example.habits.repository.projection.AccountPurgeState;
+import com.example.habits.util.AfterCommit;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Tracks and performs the purge of deleted accounts (see the V11 migration). Each chunk deletes at most
+ * {@code limit} rows of one table and records its progress in the same transaction, so a purge resumes
+ * where it stopped after a restart.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountPurgeRepository {
+
+    private static final String OWNED_HABITS = "SELECT id FROM habits WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final HabitOwnershipIndex ownershipIndex;
+    private final ShardDirectory shardDirectory;
+
+    public void schedule(Long userId) {
+        jdbcTemplate.update("INSERT INTO account_purges (user_id, phase, requested_at) VALUES (?, ?, now()) " +
+                "ON CONFLICT (user_id) DO NOTHING", userId, PurgePhase.PROGRESS.name());
+    }
+
+    public List<AccountPurgeState> findPending(int limit) {
+        return jdbcTemplate.query("SELECT user_id, phase, purged_rows FROM account_purges " +
+                        "WHERE completed_at IS NULL ORDER BY requested_at LIMIT ?",
+                (rs, rowNum) -> new AccountPurgeState(rs.getLong("user_id"),
+                        PurgePhase.valueOf(rs.getString("phase")), rs.getLong("purged_rows")),
+                limit);
+    }
+
+    /**
+     * Deletes the next chunk of rows of the given phase and returns how many were deleted. Deleted habits
+     * are evicted one by one from the second-level cache and the ownership index, and a deleted user from the
+     * second-level cache, once the chunk commits.
+     */
+    @Transactional
+    public int purgeChunk(Long userId, PurgePhase phase, int limit) {
+        int deleted = switch (phase) {
+            case PROGRESS -> jdbcTemplate.update("DELETE FROM habit_progress p USING (" +
+                    "SELECT id, date FROM habit_progress WHERE habit_id IN (" + OWNED_HABITS + ") LIMIT ?" +
+                    ") c WHERE p.id = c.id AND p.date = c.date", userId, limit);
+            case ARCHIVE -> jdbcTemplate.update("DELETE FROM habit_progress_archive WHERE id IN (" +
+                    "SELECT id FROM habit_progress_archive WHERE habit_id IN (" + OWNED_HABITS + ") LIMIT ?)",
+                    userId, limit);
+            case BITMAPS -> jdbcTemplate.update("DELETE FROM habit_year_bitmaps WHERE id IN (" +
+                    "SELECT id FROM habit_year_bitmaps WHERE habit_id IN (" + OWNED_HABITS + ") LIMIT ?)",
+                    userId, limit);
+            case HABITS -> purgeHabits(userId, limit);
+            case TOKENS -> jdbcTemplate.update("DELETE FROM refresh_tokens WHERE id IN (" +
+                    "SELECT id FROM refresh_tokens WHERE user_id = ? LIMIT ?)", userId, limit);
+            case USER -> purgeUser(userId);
+            case DONE -> 0;
+        };
+        jdbcTemplate.update("UPDATE account_purges SET purged_rows = purged_rows + ? WHERE user_id = ?",
+                deleted, userId);
+        return deleted;
+    }
+
+    /**
+     * Progress, archive rows or bitmaps written after their phase finished (a request or import that was in
+     * flight when the account was deleted) are removed with their habits in the same statement.
+     */
+    private int purgeHabits(Long userId, int limit) {
+        List<Long> habitIds = jdbcTemplate.queryForList("WITH chunk AS (" + OWNED_HABITS + " LIMIT ?), " +
+                "progress AS (DELETE FROM habit_progress WHERE habit_id IN (SELECT id FROM chunk)), " +
+                "archive AS (DELETE FROM habit_progress_archive WHERE habit_id IN (SELECT id FROM chunk)), " +
+                "bitmaps AS (DELETE FROM habit_year_bitmaps WHERE habit_id IN (SELECT id FROM chunk)) " +
+                "DELETE FROM habits WHERE id IN (SELECT id FROM chunk) RETURNING id", Long.class, userId, limit);
+        if (!habitIds.isEmpty()) {
+            AfterCommit.run(() -> {
+                habitIds.forEach(habitId -> entityManagerFactory.getCache().evict(Habit.class, habitId));
+                ownershipIndex.removeAll(habitIds);
+            });
+        }
+        return habitIds.size();
+    }
+
+    /**
+     * Deletes the user row and, once that commits, releases the email it claimed across shards.
+     */
+    private int purgeUser(Long userId) {
+        List<PurgedUser> deleted = jdbcTemplate.query("DELETE FROM users WHERE id = ? AND deleted_at IS NOT NULL " +
+                        "RETURNING username, email",
+                (rs, rowNum) -> new PurgedUser(rs.getString("username"), rs.getString("email")), userId);
+        for (PurgedUser user : deleted) {
+            AfterCommit.run(() -> {
+                entityManagerFactory.getCache().evict(User.class, userId);
+                shardDirectory.releaseEmail(user.email(), user.username());
+            });
+        }
+        return deleted.size();
+    }
+
+    public void advance(Long userId, PurgePhase phase) {
+        jdbcTemplate.update("UPDATE account_purges SET phase = ?, " +
+                        "completed_at = CASE WHEN ? THEN now() END WHERE user_id = ?",
+                phase.name(), phase == PurgePhase.DONE, userId);
+    }
+
+    private record PurgedUser(String username, String email) {
+    }
+}
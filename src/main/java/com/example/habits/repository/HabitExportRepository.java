@@ -0,0 +1,66 @@
+package com.example.habits.repository;
+
+import com.example.habits.domain.Frequency;
+import com.example.habits.repository.projection.HabitExportRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.function.Consumer;
+
+/**
+ * Reads the complete history of a user row by row through a forward-only cursor. Must be called inside a
+ * transaction, otherwise the PostgreSQL driver ignores the fetch size and buffers the whole result.
+ * Progress entries are summed per day, whether they are still in {@code habit_progress} or already packed
+ * into an archived month, so a day exports the same before and after archiving.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HabitExportRepository {
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final String HISTORY_QUERY = "SELECT h.id, h.name, h.frequency, h.target_amount, " +
+            "p.date, p.completed_amount, p.entries " +
+            "FROM habits h LEFT JOIN (" +
+            "SELECT habit_id, date, CAST(SUM(amount) AS integer) AS completed_amount, " +
+            "CAST(SUM(entries) AS integer) AS entries FROM (" +
+            "SELECT habit_id, date, completed_amount AS amount, 1 AS entries FROM habit_progress " +
+            "WHERE habit_id IN (SELECT id FROM habits WHERE user_id = ?) " +
+            "UNION ALL " +
+            "SELECT a.habit_id, CAST(a.archive_month + CAST(d.i - 1 AS integer) AS date), d.amount, d.entries " +
+            "FROM habit_progress_archive a " +
+            "CROSS JOIN LATERAL unnest(a.day_amounts, a.day_entries) WITH ORDINALITY AS d(amount, entries, i) " +
+            "WHERE a.habit_id IN (SELECT id FROM habits WHERE user_id = ?) AND d.entries > 0" +
+            ") days GROUP BY habit_id, date" +
+            ") p ON p.habit_id = h.id " +
+            "WHERE h.user_id = ? " +
+            "ORDER BY h.id, p.date";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void streamHistory(Long userId, Consumer<HabitExportRow> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(HISTORY_QUERY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setLong(1, userId);
+            statement.setLong(2, userId);
+            statement.setLong(3, userId);
+            return statement;
+        }, resultSet -> {
+            Date date = resultSet.getDate(5);
+            consumer.accept(new HabitExportRow(
+                    resultSet.getLong(1),
+                    resultSet.getString(2),
+                    Frequency.valueOf(resultSet.getString(3)),
+                    resultSet.getInt(4),
+                    date != null ? date.toLocalDate() : null,
+                    date != null ? resultSet.getInt(6) : null,
+                    date != null ? resultSet.getInt(7) : null));
+        });
+    }
+}
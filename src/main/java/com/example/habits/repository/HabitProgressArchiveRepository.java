@@ -0,0 +1,58 @@
+package com.example.habits.repository;
+
+import com.example.habits.domain.HabitProgressArchive;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface HabitProgressArchiveRepository extends JpaRepository<HabitProgressArchive, Long> {
+    List<HabitProgressArchive> findByHabitIdAndMonthBetweenOrderByMonth(Long habitId, LocalDate startMonth, LocalDate endMonth);
+
+    List<HabitProgressArchive> findByHabitIdOrderByMonth(Long habitId);
+
+    /**
+     * Moves at most {@code limit} progress rows of habits {@code fromHabitId..toHabitId} dated before
+     * {@code before} into the archive in one statement, adding them to already archived months. Returns the
+     * number of progress rows moved; fewer than {@code limit} means the range has nothing left to archive.
+     * A day split across two calls is still correct, because its archived totals are added up. The query
+     * spaces limit the flush before this native statement to the two tables it touches.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "habit_progress"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "habit_progress_archive")
+    })
+    @Transactional
+    @Query(value = "WITH batch AS (" +
+            "SELECT id, date FROM habit_progress WHERE habit_id BETWEEN :fromHabitId AND :toHabitId " +
+            "AND date < :before LIMIT :limit), " +
+            "moved AS (" +
+            "DELETE FROM habit_progress p USING batch b WHERE p.id = b.id AND p.date = b.date " +
+            "RETURNING p.habit_id, p.date, p.completed_amount), " +
+            "daily AS (SELECT habit_id, date, SUM(completed_amount) AS amount, COUNT(*) AS entries " +
+            "FROM moved GROUP BY habit_id, date), " +
+            "months AS (SELECT DISTINCT habit_id, CAST(date_trunc('month', date) AS date) AS month FROM daily), " +
+            "monthly AS (SELECT m.habit_id, m.month, " +
+            "array_agg(CAST(COALESCE(d.amount, 0) AS integer) ORDER BY g.day) AS day_amounts, " +
+            "array_agg(CAST(COALESCE(d.entries, 0) AS integer) ORDER BY g.day) AS day_entries " +
+            "FROM months m CROSS JOIN generate_series(1, 31) AS g(day) " +
+            "LEFT JOIN daily d ON d.habit_id = m.habit_id AND d.date = m.month + (g.day - 1) " +
+            "AND CAST(date_trunc('month', d.date) AS date) = m.month " +
+            "GROUP BY m.habit_id, m.month), " +
+            "written AS (" +
+            "INSERT INTO habit_progress_archive (habit_id, archive_month, day_amounts, day_entries) " +
+            "SELECT habit_id, month, day_amounts, day_entries FROM monthly " +
+            "ON CONFLICT (habit_id, archive_month) DO UPDATE SET " +
+            "day_amounts = (SELECT array_agg(a + b ORDER BY i) FROM unnest(habit_progress_archive.day_amounts, " +
+            "EXCLUDED.day_amounts) WITH ORDINALITY AS t(a, b, i)), " +
+            "day_entries = (SELECT array_agg(a + b ORDER BY i) FROM unnest(habit_progress_archive.day_entries, " +
+            "EXCLUDED.day_entries) WITH ORDINALITY AS t(a, b, i))) " +
+            "SELECT COUNT(*) FROM moved",
+            nativeQuery = true)
+    long archiveProgressBefore(Long fromHabitId, Long toHabitId, LocalDate before, int limit);
+}
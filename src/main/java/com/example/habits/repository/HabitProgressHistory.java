@@ -0,0 +1,16 @@
+package com.example.habits.repository;
+
+import com.example.habits.repository.projection.DailyProgressTotal;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Per-day progress reads that cover both {@code habit_progress} and the monthly archive, so callers do not
+ * need to know which rows have been archived.
+ */
+public interface HabitProgressHistory {
+    List<DailyProgressTotal> findAllDailyTotals(Long habitId);
+
+    List<DailyProgressTotal> findDailyTotals(Long habitId, LocalDate startDate, LocalDate endDate);
+}
@@ -0,0 +1,75 @@
+package com.example.habits.repository;
+
+import com.example.habits.domain.HabitProgressArchive;
+import com.example.habits.repository.projection.DailyProgressTotal;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RequiredArgsConstructor
+public class HabitProgressHistoryImpl implements HabitProgressHistory {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final HabitProgressArchiveRepository archiveRepository;
+
+    @Override
+    public List<DailyProgressTotal> findAllDailyTotals(Long habitId) {
+        List<DailyProgressTotal> hot = entityManager.createQuery(
+                        "SELECT new com.example.habits.repository.projection.DailyProgressTotal(" +
+                                "p.date, SUM(p.completedAmount), COUNT(p.id)) " +
+                                "FROM HabitProgress p WHERE p.habit.id = :habitId " +
+                                "GROUP BY p.date ORDER BY p.date", DailyProgressTotal.class)
+                .setParameter("habitId", habitId)
+                .getResultList();
+        return merge(hot, archiveRepository.findByHabitIdOrderByMonth(habitId), LocalDate.MIN, LocalDate.MAX);
+    }
+
+    @Override
+    public List<DailyProgressTotal> findDailyTotals(Long habitId, LocalDate startDate, LocalDate endDate) {
+        List<DailyProgressTotal> hot = entityManager.createQuery(
+                        "SELECT new com.example.habits.repository.projection.DailyProgressTotal(" +
+                                "p.date, SUM(p.completedAmount), COUNT(p.id)) " +
+                                "FROM HabitProgress p WHERE p.habit.id = :habitId " +
+                                "AND p.date BETWEEN :startDate AND :endDate " +
+                                "GROUP BY p.date ORDER BY p.date", DailyProgressTotal.class)
+                .setParameter("habitId", habitId)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .getResultList();
+        List<HabitProgressArchive> archived = archiveRepository.findByHabitIdAndMonthBetweenOrderByMonth(
+                habitId, startDate.withDayOfMonth(1), endDate);
+        return merge(hot, archived, startDate, endDate);
+    }
+
+    private static List<DailyProgressTotal> merge(List<DailyProgressTotal> hot, List<HabitProgressArchive> archived,
+                                                  LocalDate startDate, LocalDate endDate) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        Map<LocalDate, DailyProgressTotal> byDate = new TreeMap<>();
+        for (HabitProgressArchive month : archived) {
+            for (int i = 0; i < HabitProgressArchive.DAYS; i++) {
+                if (month.getDayEntries()[i] == 0) {
+                    continue;
+                }
+                LocalDate date = month.getMonth().plusDays(i);
+                if (!date.isBefore(startDate) && !date.isAfter(endDate)) {
+                    byDate.put(date, new DailyProgressTotal(date, month.getDayAmounts()[i], month.getDayEntries()[i]));
+                }
+            }
+        }
+        for (DailyProgressTotal total : hot) {
+            byDate.merge(total.date(), total, (a, b) -> new DailyProgressTotal(a.date(),
+                    a.completedAmount() + b.completedAmount(), a.entries() + b.entries()));
+        }
+        return new ArrayList<>(byDate.values());
+    }
+}
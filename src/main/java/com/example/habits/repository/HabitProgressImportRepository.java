@@ -0,0 +1,61 @@
+package com.example.habits.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Bulk loads progress through a transaction-scoped staging table filled with {@code COPY} and merged into
+ * {@code habit_progress} with one statement. Both steps must run in the same transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HabitProgressImportRepository {
+
+    private static final String MERGE_STAGING = "WITH staged AS (" +
+            "SELECT date, SUM(completed_amount) AS completed_amount FROM progress_import_staging GROUP BY date), " +
+            "cleared_archive AS (" +
+            "UPDATE habit_progress_archive a SET " +
+            "day_amounts = (SELECT array_agg(CASE WHEN s.date IS NULL THEN u.amount ELSE 0 END ORDER BY u.i) " +
+            "FROM unnest(a.day_amounts) WITH ORDINALITY AS u(amount, i) " +
+            "LEFT JOIN staged s ON s.date = a.archive_month + CAST(u.i - 1 AS integer)), " +
+            "day_entries = (SELECT array_agg(CASE WHEN s.date IS NULL THEN u.entries ELSE 0 END ORDER BY u.i) " +
+            "FROM unnest(a.day_entries) WITH ORDINALITY AS u(entries, i) " +
+            "LEFT JOIN staged s ON s.date = a.archive_month + CAST(u.i - 1 AS integer)) " +
+            "WHERE a.habit_id = ? " +
+            "AND a.archive_month IN (SELECT DISTINCT CAST(date_trunc('month', date) AS date) FROM staged) " +
+            "RETURNING a.id), " +
+            "replaced AS (" +
+            "DELETE FROM habit_progress p USING staged s WHERE p.habit_id = ? AND p.date = s.date RETURNING p.id) " +
+            "INSERT INTO habit_progress (date, completed_amount, habit_id) " +
+            "SELECT date, completed_amount, ? FROM staged";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProgressImportStaging openStaging() throws SQLException {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Progress import requires an active transaction");
+        }
+        jdbcTemplate.execute("CREATE TEMP TABLE IF NOT EXISTS progress_import_staging (" +
+                "date DATE NOT NULL, completed_amount INTEGER NOT NULL) ON COMMIT DROP");
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        return new ProgressImportStaging(connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY progress_import_staging (date, completed_amount) FROM STDIN WITH (FORMAT csv)"));
+    }
+
+    /**
+     * Replaces the progress of every staged day of the habit, archived or not, with the staged totals.
+     * Returns the number of days written.
+     */
+    public int mergeStaging(Long habitId) {
+        return jdbcTemplate.update(MERGE_STAGING, habitId, habitId, habitId);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.habits.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Manages the monthly partitions of {@code habit_progress} (see the V5 migration). Partitions are
+ * named {@code habit_progress_pYYYYMM}; the default partition is never touched.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HabitProgressPartitionRepository {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("habit_progress_p(\\d{6})");
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Creates the partition of the given month if it does not exist yet and returns its name.
+     */
+    public String createPartition(YearMonth month) {
+        return jdbcTemplate.queryForObject("SELECT create_habit_progress_partition(?)", String.class,
+                month.atDay(1));
+    }
+
+    public List<YearMonth> findPartitionMonths() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = 'habit_progress' ORDER BY c.relname",
+                String.class);
+        return names.stream()
+                .map(PARTITION_NAME::matcher)
+                .filter(Matcher::matches)
+                .map(matcher -> YearMonth.parse(matcher.group(1), MONTH_SUFFIX))
+                .toList();
+    }
+
+    public void detachPartition(YearMonth month) {
+        jdbcTemplate.execute("ALTER TABLE habit_progress DETACH PARTITION " + partitionName(month));
+    }
+
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(month));
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "habit_progress_p" + month.format(MONTH_SUFFIX);
+    }
+}
@@ -1,11 +1,63 @@
 package com.example.habits.repository;
 
 import com.example.habits.domain.HabitProgress;
+import com.example.habits.repository.projection.HabitSeriesPoint;
+import com.example.habits.repository.projection.ProgressEntry;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface HabitProgressRepository extends JpaRepository<HabitProgress, Long> {
+public interface HabitProgressRepository extends JpaRepository<HabitProgress, Long>, HabitProgressHistory {
+    /**
+     * Individual progress entries still in {@code habit_progress}; archived months are not included.
+     * The habit is left as a lazy reference, which is enough to read its id.
+     */
     List<HabitProgress> findByHabitIdAndDateBetween(Long habitId, LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT new com.example.habits.repository.projection.ProgressEntry(p.id, p.date, p.completedAmount) " +
+            "FROM HabitProgress p WHERE p.habit.id = :habitId " +
+            "ORDER BY p.date DESC, p.id DESC")
+    Slice<ProgressEntry> findLatestEntries(Long habitId, Pageable pageable);
+
+    /**
+     * Entries strictly after the {@code (date, id)} position in {@code date DESC, id DESC} order.
+     */
+    @Query("SELECT new com.example.habits.repository.projection.ProgressEntry(p.id, p.date, p.completedAmount) " +
+            "FROM HabitProgress p WHERE p.habit.id = :habitId " +
+            "AND (p.date < :date OR (p.date = :date AND p.id < :id)) " +
+            "ORDER BY p.date DESC, p.id DESC")
+    Slice<ProgressEntry> findEntriesBefore(Long habitId, LocalDate date, Long id, Pageable pageable);
+
+    /**
+     * Per-bucket totals between {@code from} and {@code to} (inclusive), including archived progress.
+     * Buckets are produced by {@code generate_series}, so empty buckets are returned with zero totals.
+     * Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "WITH progress AS (" +
+            "SELECT date, completed_amount, 1 AS entries FROM habit_progress " +
+            "WHERE habit_id = :habitId AND date BETWEEN :from AND :to " +
+            "UNION ALL " +
+            "SELECT CAST(a.archive_month + CAST(d.i - 1 AS integer) AS date), d.amount, d.entries " +
+            "FROM habit_progress_archive a " +
+            "CROSS JOIN LATERAL unnest(a.day_amounts, a.day_entries) WITH ORDINALITY AS d(amount, entries, i) " +
+            "WHERE a.habit_id = :habitId AND a.archive_month BETWEEN date_trunc('month', CAST(:from AS date)) AND :to " +
+            "AND d.entries > 0 AND a.archive_month + CAST(d.i - 1 AS integer) BETWEEN :from AND :to) " +
+            "SELECT CAST(b.bucket_start AS date) AS bucketStart, " +
+            "COALESCE(SUM(p.completed_amount), 0) AS completed, COALESCE(SUM(p.entries), 0) AS entries " +
+            "FROM generate_series(date_trunc(:bucket, CAST(:from AS timestamp)), CAST(:to AS timestamp), " +
+            "CAST('1 ' || :bucket AS interval)) AS b(bucket_start) " +
+            "LEFT JOIN progress p ON p.date >= CAST(b.bucket_start AS date) " +
+            "AND p.date < CAST(b.bucket_start + CAST('1 ' || :bucket AS interval) AS date) " +
+            "GROUP BY b.bucket_start ORDER BY b.bucket_start",
+            nativeQuery = true)
+    Stream<HabitSeriesPoint> streamSeries(Long habitId, LocalDate from, LocalDate to, String bucket);
 }
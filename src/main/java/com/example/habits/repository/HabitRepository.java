@@ -1,11 +1,60 @@
 package com.example.habits.repository;
 
 import com.example.habits.domain.Habit;
+import com.example.habits.repository.projection.HabitProgressSummary;
+import com.example.habits.repository.projection.HabitVersion;
+import com.example.habits.repository.projection.HabitView;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface HabitRepository extends JpaRepository<Habit, Long> {
     List<Habit> findByUserId(Long userId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM Habit h WHERE h.id = :id")
+    Optional<Habit> findByIdForUpdate(Long id);
+
+    @Query("SELECT new com.example.habits.repository.projection.HabitVersion(h.id, h.user.id, h.version) " +
+            "FROM Habit h WHERE h.id = :id")
+    Optional<HabitVersion> findVersionById(Long id);
+
+    @Query("SELECT h.user.id FROM Habit h WHERE h.id = :id")
+    Optional<Long> findOwnerIdById(Long id);
+
+    @Query("SELECT new com.example.habits.repository.projection.HabitProgressSummary(" +
+            "h.id, h.name, h.frequency, h.targetAmount, h.currentStreak, h.longestStreak, h.lastCompletedPeriod, " +
+            "COUNT(p.id), COALESCE(SUM(p.completedAmount), 0)) " +
+            "FROM Habit h LEFT JOIN HabitProgress p ON p.habit = h AND p.date BETWEEN :startDate AND :endDate " +
+            "WHERE h.user.id = :userId " +
+            "GROUP BY h.id, h.name, h.frequency, h.targetAmount, h.currentStreak, h.longestStreak, h.lastCompletedPeriod " +
+            "ORDER BY h.id")
+    List<HabitProgressSummary> summarizeProgressByUserId(Long userId, LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT new com.example.habits.repository.projection.HabitView(" +
+            "h.id, h.name, h.frequency, h.targetAmount, h.user.id, h.currentStreak, h.longestStreak, " +
+            "h.lastCompletedPeriod) FROM Habit h WHERE h.id = :id")
+    Optional<HabitView> findViewById(Long id);
+
+    @Query("SELECT new com.example.habits.repository.projection.HabitView(" +
+            "h.id, h.name, h.frequency, h.targetAmount, h.user.id, h.currentStreak, h.longestStreak, " +
+            "h.lastCompletedPeriod) FROM Habit h WHERE h.user.id = :userId ORDER BY h.id")
+    Slice<HabitView> findViewsByUserId(Long userId, Pageable pageable);
+
+    @Query("SELECT new com.example.habits.repository.projection.HabitView(" +
+            "h.id, h.name, h.frequency, h.targetAmount, h.user.id, h.currentStreak, h.longestStreak, " +
+            "h.lastCompletedPeriod) FROM Habit h WHERE h.user.id = :userId AND h.id > :afterId ORDER BY h.id")
+    Slice<HabitView> findViewsByUserIdAfter(Long userId, Long afterId, Pageable pageable);
+
+    @Query("SELECT h.id FROM Habit h WHERE h.id > :afterId ORDER BY h.id")
+    List<Long> findIdsAfter(Long afterId, Pageable pageable);
 }
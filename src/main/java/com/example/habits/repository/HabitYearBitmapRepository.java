@@ -0,0 +1,23 @@
+package com.example.habits.repository;
+
+import com.example.habits.domain.HabitYearBitmap;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.Optional;
+
+public interface HabitYearBitmapRepository extends JpaRepository<HabitYearBitmap, Long> {
+    Optional<HabitYearBitmap> findByHabitIdAndYear(Long habitId, int year);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM HabitYearBitmap b WHERE b.habitId = :habitId AND b.year = :year")
+    Optional<HabitYearBitmap> findForUpdate(Long habitId, int year);
+
+    @Modifying
+    @Query("DELETE FROM HabitYearBitmap b WHERE b.habitId = :habitId AND b.year IN :years")
+    void deleteByHabitIdAndYearIn(Long habitId, Collection<Integer> years);
+}
@@ -0,0 +1,56 @@
+package com.example.habits.repository;
+
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * An open {@code COPY ... FROM STDIN} into the import staging table. Rows are buffered and sent to the
+ * server in chunks, so the size of an import does not affect memory use.
+ */
+public class ProgressImportStaging {
+
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+    private final CopyIn copyIn;
+    private final StringBuilder buffer = new StringBuilder();
+    private long rows;
+
+    ProgressImportStaging(CopyIn copyIn) {
+        this.copyIn = copyIn;
+    }
+
+    public void add(LocalDate date, int completedAmount) throws SQLException {
+        buffer.append(date).append(',').append(completedAmount).append('\n');
+        rows++;
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the remaining rows and completes the copy. Returns the number of staged rows.
+     */
+    public long finish() throws SQLException {
+        flush();
+        copyIn.endCopy();
+        return rows;
+    }
+
+    public void cancel() throws SQLException {
+        if (copyIn.isActive()) {
+            copyIn.cancelCopy();
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
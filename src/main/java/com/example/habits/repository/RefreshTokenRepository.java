@@ -9,6 +9,10 @@ import org.springframework.data.jpa.repository.Query;
 import java.util.Optional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+    /**
+     * Loads the token without its user. Refreshing only compares the owner id, which the lazy
+     * reference carries without a query.
+     */
     @Query("SELECT rt FROM RefreshToken rt WHERE rt.token = :token")
     Optional<RefreshToken> findByToken(String token);
 
@@ -0,0 +1,17 @@
+package com.example.habits.repository;
+
+import com.example.habits.domain.User;
+
+import java.util.Optional;
+
+/**
+ * Username lookups resolved through Hibernate's natural-id API, so repeated lookups of the same user are
+ * answered from the second-level cache instead of a query.
+ */
+public interface UserNaturalIdLookup {
+
+    /**
+     * Returns the user with the given username, including users marked deleted.
+     */
+    Optional<User> findByUsername(String username);
+}
@@ -0,0 +1,32 @@
+package com.example.habits.repository;
+
+import com.example.habits.repository.projection.VersionedProfile;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Profile writes done as a single statement instead of load, modify and flush. They bypass the
+ * persistence context, so the cached {@code User} is soft-locked around the statement where it matters,
+ * as Hibernate does for its own updates.
+ */
+public interface UserProfileUpdates {
+
+    /**
+     * Sets email and full name and bumps the version of the user in one {@code UPDATE ... RETURNING}.
+     * With a non-null {@code expectedVersion} the row is only updated while it still has that version.
+     * Returns empty when no live user with that id (and version) exists.
+     */
+    Optional<VersionedProfile> updateProfile(Long id, String email, String fullName, Long expectedVersion);
+
+    /**
+     * Bumps {@code habits_version} of the user. Done in plain SQL rather than a JPQL bulk update, which
+     * would invalidate the whole {@code User} cache region on every habit change.
+     */
+    int incrementHabitsVersion(Long id);
+
+    /**
+     * Marks a live user deleted. Plain SQL for the same reason; only this user's cache entry is locked.
+     */
+    int markDeleted(Long id, Instant deletedAt);
+}
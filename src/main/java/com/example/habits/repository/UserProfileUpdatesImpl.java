@@ -0,0 +1,96 @@
+package com.example.habits.repository;
+
+import com.example.habits.domain.User;
+import com.example.habits.repository.projection.VersionedProfile;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+@RequiredArgsConstructor
+public class UserProfileUpdatesImpl implements UserProfileUpdates {
+
+    private static final String UPDATE_PROFILE = "UPDATE users SET email = ?, full_name = ?, version = version + 1 " +
+            "WHERE id = ? AND deleted_at IS NULL";
+    private static final String RETURNING = " RETURNING id, username, email, full_name, version";
+
+    private static final RowMapper<VersionedProfile> PROFILE = (rs, rowNum) -> new VersionedProfile(
+            rs.getLong("id"), rs.getString("username"), rs.getString("email"), rs.getString("full_name"),
+            rs.getLong("version"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public Optional<VersionedProfile> updateProfile(Long id, String email, String fullName, Long expectedVersion) {
+        List<VersionedProfile> updated = writeThroughSoftLock(id, () -> expectedVersion == null
+                ? jdbcTemplate.query(UPDATE_PROFILE + RETURNING, PROFILE, email, fullName, id)
+                : jdbcTemplate.query(UPDATE_PROFILE + " AND version = ?" + RETURNING, PROFILE,
+                        email, fullName, id, expectedVersion));
+        return updated.stream().findFirst();
+    }
+
+    @Override
+    public int incrementHabitsVersion(Long id) {
+        return jdbcTemplate.update("UPDATE users SET habits_version = habits_version + 1 WHERE id = ?", id);
+    }
+
+    @Override
+    public int markDeleted(Long id, Instant deletedAt) {
+        return writeThroughSoftLock(id, () -> jdbcTemplate.update(
+                "UPDATE users SET deleted_at = ? WHERE id = ? AND deleted_at IS NULL", Timestamp.from(deletedAt), id));
+    }
+
+    /**
+     * Runs the statement the way Hibernate updates a READ_WRITE entity itself: the user's cache entry is
+     * soft-locked before the statement and unlocked once the transaction completes (or right after the
+     * statement without one). While locked, and afterwards for sessions that started before the unlock,
+     * Hibernate does not put the user back, so a read of the old row cannot repopulate the region.
+     */
+    private <T> T writeThroughSoftLock(Long id, Supplier<T> statement) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(User.class);
+        EntityDataAccess cacheAccess = persister.getCacheAccessStrategy();
+        if (cacheAccess == null) {
+            return statement.get();
+        }
+        Object key = cacheAccess.generateCacheKey(id, persister, sessionFactory, null);
+        SoftLock lock;
+        try (Session session = sessionFactory.openSession()) {
+            lock = cacheAccess.lockItem((SharedSessionContractImplementor) session, key, null);
+        }
+        Runnable unlock = () -> {
+            try (Session session = sessionFactory.openSession()) {
+                cacheAccess.unlockItem((SharedSessionContractImplementor) session, key, lock);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                return statement.get();
+            } finally {
+                unlock.run();
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock.run();
+            }
+        });
+        return statement.get();
+    }
+}
@@ -1,16 +1,31 @@
 package com.example.habits.repository;
 
 import com.example.habits.domain.User;
+import com.example.habits.repository.projection.UserProfileView;
+import com.example.habits.repository.projection.UserVersion;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByUsername(String username);
+public interface UserRepository extends JpaRepository<User, Long>, UserProfileUpdates, UserNaturalIdLookup {
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT u.id FROM User u WHERE u.username = :username AND u.deletedAt IS NULL")
+    Optional<Long> findIdByUsername(String username);
+
+    @Query("SELECT new com.example.habits.repository.projection.UserProfileView(u.id, u.username, u.email, u.fullName) " +
+            "FROM User u WHERE u.id > :afterId AND u.deletedAt IS NULL ORDER BY u.id")
+    Slice<UserProfileView> findProfilesAfter(Long afterId, Pageable pageable);
+
+    @Query("SELECT new com.example.habits.repository.projection.UserVersion(u.id, u.version, u.habitsVersion) " +
+            "FROM User u WHERE u.id = :id AND u.deletedAt IS NULL")
+    Optional<UserVersion> findVersionById(Long id);
 }
@@ -0,0 +1,57 @@
+package com.example.habits.repository;
+
+import com.example.habits.datasource.ShardDirectory;
+import com.example.habits.repository.projection.UserProfileView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Substring and fuzzy search over username, email and full name, served by the trigram indexes of the
+ * V12 migration. Username prefix matches rank first, then the best trigram similarity of any column.
+ * Every shard is searched and the best matches of all shards are merged by the same ranking.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserSearchRepository {
+
+    private static final String SEARCH_QUERY = "SELECT id, username, email, full_name, " +
+            "username ILIKE ? AS prefix_match, " +
+            "GREATEST(similarity(username, ?), similarity(email, ?), similarity(COALESCE(full_name, ''), ?)) AS score " +
+            "FROM users " +
+            "WHERE deleted_at IS NULL AND (" +
+            "username ILIKE ? OR email ILIKE ? OR full_name ILIKE ? " +
+            "OR username % ? OR email % ? OR full_name % ?) " +
+            "ORDER BY prefix_match DESC, score DESC, id " +
+            "LIMIT ?";
+
+    private static final Comparator<Match> RANKING = Comparator.comparing(Match::prefixMatch).reversed()
+            .thenComparing(Comparator.comparingDouble(Match::score).reversed())
+            .thenComparing(match -> match.view().id());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardDirectory shardDirectory;
+
+    public List<UserProfileView> search(String query, int limit) {
+        String escaped = query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        String contains = "%" + escaped + "%";
+        String prefix = escaped + "%";
+        return shardDirectory.scatter(() -> jdbcTemplate.query(SEARCH_QUERY,
+                        (rs, rowNum) -> new Match(new UserProfileView(rs.getLong("id"), rs.getString("username"),
+                                rs.getString("email"), rs.getString("full_name")),
+                                rs.getBoolean("prefix_match"), rs.getDouble("score")),
+                        prefix, query, query, query, contains, contains, contains, query, query, query, limit))
+                .stream()
+                .flatMap(List::stream)
+                .sorted(RANKING)
+                .limit(limit)
+                .map(Match::view)
+                .toList();
+    }
+
+    private record Match(UserProfileView view, boolean prefixMatch, double score) {
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.habits.repository.projection;
+
+import com.example.habits.domain.PurgePhase;
+
+public record AccountPurgeState(Long userId, PurgePhase phase, long purgedRows) {
+}
@@ -0,0 +1,6 @@
+package com.example.habits.repository.projection;
+
+import java.time.LocalDate;
+
+public record DailyProgressTotal(LocalDate date, long completedAmount, long entries) {
+}
@@ -0,0 +1,13 @@
+package com.example.habits.repository.projection;
+
+import com.example.habits.domain.Frequency;
+
+import java.time.LocalDate;
+
+/**
+ * One habit joined with one day of its progress. {@code date}, {@code completedAmount} and
+ * {@code entries} are null for a habit without progress.
+ */
+public record HabitExportRow(Long habitId, String habitName, Frequency frequency, int targetAmount,
+                             LocalDate date, Integer completedAmount, Integer entries) {
+}
@@ -0,0 +1,10 @@
+package com.example.habits.repository.projection;
+
+import com.example.habits.domain.Frequency;
+
+import java.time.LocalDate;
+
+public record HabitProgressSummary(Long habitId, String habitName, Frequency frequency, int targetAmount,
+                                   int currentStreak, int longestStreak, LocalDate lastCompletedPeriod,
+                                   long entries, long totalCompleted) {
+}
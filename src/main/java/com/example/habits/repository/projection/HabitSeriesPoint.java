@@ -0,0 +1,9 @@
+package com.example.habits.repository.projection;
+
+import java.time.LocalDate;
+
+public interface HabitSeriesPoint {
+    LocalDate getBucketStart();
+    long getCompleted();
+    long getEntries();
+}
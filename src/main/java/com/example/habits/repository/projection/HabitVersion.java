@@ -0,0 +1,4 @@
+package com.example.habits.repository.projection;
+
+public record HabitVersion(Long id, Long userId, long version) {
+}
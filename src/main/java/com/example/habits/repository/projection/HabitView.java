@@ -0,0 +1,9 @@
+package com.example.habits.repository.projection;
+
+import com.example.habits.domain.Frequency;
+
+import java.time.LocalDate;
+
+public record HabitView(Long id, String name, Frequency frequency, int targetAmount, Long userId,
+                        int currentStreak, int longestStreak, LocalDate lastCompletedPeriod) {
+}
@@ -0,0 +1,4 @@
+package com.example.habits.repository.projection;
+
+public record UserProfileView(Long id, String username, String email, String fullName) {
+}
@@ -0,0 +1,4 @@
+package com.example.habits.repository.projection;
+
+public record UserVersion(Long id, long version, long habitsVersion) {
+}
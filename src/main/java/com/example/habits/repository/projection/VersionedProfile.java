@@ -0,0 +1,4 @@
+package com.example.habits.repository.projection;
+
+public record VersionedProfile(Long id, String username, String email, String fullName, long version) {
+}
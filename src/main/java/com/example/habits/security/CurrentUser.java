@@ -0,0 +1,10 @@
+package com.example.habits.security;
+
+/**
+ * Identity of the authenticated caller, taken from the access token by {@link JwtAuthenticationFilter} and
+ * stored as a request attribute. Declare it as a controller method parameter to receive it.
+ */
+public record CurrentUser(Long id, String username) {
+
+    public static final String REQUEST_ATTRIBUTE = CurrentUser.class.getName();
+}
@@ -0,0 +1,12 @@
+package com.example.habits.service;
+
+import com.example.habits.dto.habit.HabitExportRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+    HabitExportRequest prepareExport(Long userId, String format, boolean gzip);
+
+    void writeExport(HabitExportRequest request, OutputStream outputStream) throws IOException;
+}
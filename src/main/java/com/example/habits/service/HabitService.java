@@ -1,9 +1,22 @@
 package com.example.habits.service;
 
 import com.example.habits.dto.habit.*;
+import com.example.habits.dto.page.CursorPageDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface HabitService {
-    HabitResponseDTO createHabit(HabitRequestDTO request);
-    HabitProgressResponseDTO recordProgress(Long habitId, HabitProgressRequestDTO request);
-    HabitAnalyticsResponseDTO getAnalytics(Long habitId, String period);
+    HabitResponseDTO createHabit(Long userId, HabitRequestDTO request);
+    CursorPageDTO<HabitResponseDTO> getHabits(Long userId, String after, int limit);
+    HabitResponseDTO getHabit(Long userId, Long habitId);
+    String getHabitsEtag(Long userId);
+    String getHabitEtag(Long userId, Long habitId);
+    HabitProgressResponseDTO recordProgress(Long userId, Long habitId, HabitProgressRequestDTO request);
+    HabitAnalyticsResponseDTO getAnalytics(Long userId, Long habitId, String period);
+    List<HabitAnalyticsResponseDTO> getAnalyticsForAllHabits(Long userId, String period);
+    HabitSeriesRequest prepareSeries(Long userId, Long habitId, LocalDate from, LocalDate to, String bucket);
+    void streamSeries(HabitSeriesRequest request, Consumer<HabitSeriesPointDTO> consumer);
+    CursorPageDTO<HabitProgressResponseDTO> getProgressHistory(Long userId, Long habitId, String before, int limit);
 }
@@ -0,0 +1,13 @@
+package com.example.habits.service;
+
+import com.example.habits.domain.Habit;
+import com.example.habits.dto.habit.HabitHeatmapResponseDTO;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+public interface HeatmapService {
+    void applyProgress(Habit habit, LocalDate date, int completedAmount);
+    HabitHeatmapResponseDTO getHeatmap(Long userId, Long habitId, int year);
+    void refresh(Long habitId, Set<Integer> years);
+}
@@ -0,0 +1,9 @@
+package com.example.habits.service;
+
+import com.example.habits.dto.habit.HabitImportResponseDTO;
+
+import java.io.InputStream;
+
+public interface ProgressImportService {
+    HabitImportResponseDTO importProgress(Long userId, Long habitId, String format, InputStream body);
+}
@@ -0,0 +1,10 @@
+package com.example.habits.service;
+
+import com.example.habits.domain.Habit;
+
+import java.time.LocalDate;
+
+public interface StreakService {
+    void applyProgress(Habit habit, LocalDate date, int completedAmount);
+    void recomputeStreaks(Long habitId);
+}
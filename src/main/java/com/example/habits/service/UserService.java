@@ -1,6 +1,6 @@
 package com.example.habits.service;
 
-import com.example.habits.domain.User;
+import com.example.habits.dto.page.CursorPageDTO;
 import com.example.habits.dto.user.ProfileResponseDTO;
 import com.example.habits.dto.user.UpdateProfileRequestDTO;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,10 +11,12 @@ import java.util.Optional;
 
 public interface UserService extends UserDetailsService {
     Optional<ProfileResponseDTO> getUserById(Long id);
-    ProfileResponseDTO getProfile(String username);
-    ProfileResponseDTO updateUser(Long id, UpdateProfileRequestDTO request);
-    List<ProfileResponseDTO> getAllUsers(int limit, int offset);
+    ProfileResponseDTO getProfile(Long id);
+    Optional<String> getProfileEtag(Long id);
+    String getOwnProfileEtag(Long id);
+    ProfileResponseDTO updateUser(Long id, UpdateProfileRequestDTO request, String ifMatch);
+    CursorPageDTO<ProfileResponseDTO> getAllUsers(String after, int limit);
+    List<ProfileResponseDTO> searchUsers(String query, int limit);
     void deleteUser(Long id);
     UserDetails loadUserByUsername(String username);
-    User getCurrentUser(String username);
 }
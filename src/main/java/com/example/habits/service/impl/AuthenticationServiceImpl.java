@@ -1,5 +1,7 @@
 package com.example.habits.service.impl;
 
+import com.example.habits.datasource.ShardContext;
+import com.example.habits.datasource.ShardDirectory;
 import com.example.habits.domain.RefreshToken;
 import com.example.habits.domain.User;
 import com.example.habits.dto.auth.LoginRequestDTO;
@@ -29,13 +31,14 @@ public class AuthenticationServiceImpl implements AuthenticationService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
+    private final ShardDirectory shardDirectory;
 
 
     public User registerUser(RegisterRequestDTO request) {
-        if (userRepository.findByUsername(request.getUsername()).isPresent()) {
+        if (shardDirectory.scatter(() -> userRepository.findByUsername(request.getUsername()).isPresent()).contains(true)) {
             throw new IllegalArgumentException("Username already exist");
         }
-        if (userRepository.findByEmail(request.getEmail()).isPresent()) {
+        if (shardDirectory.scatter(() -> userRepository.findByEmail(request.getEmail()).isPresent()).contains(true)) {
             throw new IllegalArgumentException("Email already exists");
         }
 
@@ -45,10 +48,27 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         user.setPassword(passwordEncoder.encode(request.getPassword()));
         user.setFullName(request.getFullName());
 
-        return userRepository.save(user);
+        int shard = shardDirectory.homeShardOf(request.getUsername());
+        // The unique email constraint of the home shard does not see the other shards.
+        if (!shardDirectory.claimEmail(request.getEmail(), request.getUsername(), shard)) {
+            throw new IllegalArgumentException("Email already exists");
+        }
+        User saved;
+        try {
+            saved = ShardContext.call(shard, () -> userRepository.save(user));
+        } catch (RuntimeException e) {
+            shardDirectory.releaseEmail(request.getEmail(), request.getUsername());
+            throw e;
+        }
+        shardDirectory.remember(saved.getUsername(), shard);
+        return saved;
     }
 
     public TokenResponseDTO loginUser(LoginRequestDTO request) {
+        return ShardContext.call(shardDirectory.shardOfUsername(request.getUsername()), () -> login(request));
+    }
+
+    private TokenResponseDTO login(LoginRequestDTO request) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
         );
@@ -68,6 +88,10 @@ public class AuthenticationServiceImpl implements AuthenticationService {
     }
 
     public TokenResponseDTO refreshAccessToken(String refreshToken) {
+        return ShardContext.call(shardOf(refreshToken), () -> refresh(refreshToken));
+    }
+
+    private TokenResponseDTO refresh(String refreshToken) {
         RefreshToken storedToken = refreshTokenRepository.findByToken(refreshToken)
                 .orElseThrow(() -> new IllegalArgumentException("Refresh token not found"));
 
@@ -110,6 +134,19 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         return new TokenResponseDTO(newAccessToken, newRefreshToken);
     }
 
+    /**
+     * The shard of the user a refresh token was issued to. A token that cannot be read is looked up on
+     * shard 0, where it is not found either.
+     */
+    private int shardOf(String refreshToken) {
+        try {
+            Long userId = jwtService.extractClaims(refreshToken).get("userId", Long.class);
+            return userId != null ? shardDirectory.shardOfUser(userId).orElse(0) : 0;
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
     private void saveRefreshToken(User user, String refreshToken) {
         refreshTokenRepository.deleteByUserId(user.getId());
         RefreshToken token = new RefreshToken();
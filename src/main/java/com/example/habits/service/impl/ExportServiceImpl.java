@@ -0,0 +1,123 @@
+package com.example.habits.service.impl;
+
+import com.example.habits.datasource.ShardContext;
+import com.example.habits.domain.HistoryFormat;
+import com.example.habits.dto.habit.HabitExportRequest;
+import com.example.habits.repository.HabitExportRepository;
+import com.example.habits.repository.projection.HabitExportRow;
+import com.example.habits.service.ExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the history of a user while it is read from the database, so memory use does not depend on
+ * the size of the history. NDJSON output has one line per habit followed by one line per day of its
+ * progress; CSV output has one row per habit and day.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportServiceImpl implements ExportService {
+
+    private static final String CSV_HEADER = "habit_id,habit_name,frequency,target_amount,date,completed_amount,entries";
+
+    private final HabitExportRepository exportRepository;
+    private final ObjectMapper objectMapper;
+
+    public HabitExportRequest prepareExport(Long userId, String format, boolean gzip) {
+        HistoryFormat exportFormat = HistoryFormat.fromValue(format);
+        return new HabitExportRequest(userId, exportFormat, gzip, ShardContext.current());
+    }
+
+    @Transactional(readOnly = true)
+    public void writeExport(HabitExportRequest request, OutputStream outputStream) throws IOException {
+        try (OutputStream out = request.gzip() ? new GZIPOutputStream(outputStream) : outputStream) {
+            try {
+                if (request.format() == HistoryFormat.NDJSON) {
+                    writeNdjson(request.userId(), out);
+                } else {
+                    writeCsv(request.userId(), out);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private void writeNdjson(Long userId, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        Long[] currentHabitId = {null};
+        exportRepository.streamHistory(userId, row -> {
+            try {
+                if (!row.habitId().equals(currentHabitId[0])) {
+                    currentHabitId[0] = row.habitId();
+                    generator.writeStartObject();
+                    generator.writeStringField("type", "habit");
+                    generator.writeNumberField("id", row.habitId());
+                    generator.writeStringField("name", row.habitName());
+                    generator.writeStringField("frequency", row.frequency().name());
+                    generator.writeNumberField("targetAmount", row.targetAmount());
+                    generator.writeEndObject();
+                }
+                if (row.date() != null) {
+                    generator.writeStartObject();
+                    generator.writeStringField("type", "progress");
+                    generator.writeNumberField("habitId", row.habitId());
+                    generator.writeStringField("date", row.date().toString());
+                    generator.writeNumberField("completedAmount", row.completedAmount());
+                    generator.writeNumberField("entries", row.entries());
+                    generator.writeEndObject();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (currentHabitId[0] != null) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+
+    private void writeCsv(Long userId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        exportRepository.streamHistory(userId, row -> {
+            try {
+                writer.write(toCsvLine(row));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private static String toCsvLine(HabitExportRow row) {
+        return row.habitId() + "," + escapeCsv(row.habitName()) + "," + row.frequency() + "," + row.targetAmount()
+                + "," + (row.date() != null ? row.date() : "")
+                + "," + (row.completedAmount() != null ? row.completedAmount() : "")
+                + "," + (row.entries() != null ? row.entries() : "");
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
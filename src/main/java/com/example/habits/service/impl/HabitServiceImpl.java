@@ -1,84 +1,302 @@
 package com.example.habits.service.impl;
 
+import com.example.habits.cache.HabitAnalyticsCache;
+import com.example.habits.cache.HabitOwnershipIndex;
+import com.example.habits.cache.HabitProgressHotStore;
+import com.example.habits.cache.ResourceVersionCache;
+import com.example.habits.datasource.ShardContext;
 import com.example.habits.domain.Habit;
 import com.example.habits.domain.HabitProgress;
-import com.example.habits.domain.User;
+import com.example.habits.domain.SeriesBucket;
 import com.example.habits.dto.habit.*;
+import com.example.habits.dto.page.CursorPageDTO;
 import com.example.habits.repository.HabitProgressRepository;
 import com.example.habits.repository.HabitRepository;
 import com.example.habits.repository.UserRepository;
+import com.example.habits.repository.projection.HabitSeriesPoint;
+import com.example.habits.repository.projection.HabitVersion;
+import com.example.habits.repository.projection.HabitView;
+import com.example.habits.repository.projection.ProgressEntry;
+import com.example.habits.repository.projection.UserVersion;
 import com.example.habits.service.HabitService;
+import com.example.habits.service.HeatmapService;
+import com.example.habits.service.StreakService;
+import com.example.habits.util.AfterCommit;
+import com.example.habits.util.Cursors;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class HabitServiceImpl implements HabitService {
+    private static final long MAX_SERIES_DAYS = 3660;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final HabitRepository habitRepository;
     private final HabitProgressRepository habitProgressRepository;
     private final UserRepository userRepository;
+    private final HabitAnalyticsCache analyticsCache;
+    private final StreakService streakService;
+    private final HeatmapService heatmapService;
+    private final HabitProgressHotStore hotStore;
+    private final ResourceVersionCache versionCache;
+    private final HabitOwnershipIndex ownershipIndex;
 
-    public HabitResponseDTO createHabit(HabitRequestDTO habitRequest) {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByUsername(username).orElseThrow(() -> new RuntimeException("User not found"));
-
+    @Transactional
+    public HabitResponseDTO createHabit(Long userId, HabitRequestDTO habitRequest) {
         Habit habit = new Habit();
         habit.setName(habitRequest.getName());
         habit.setFrequency(habitRequest.getFrequency());
         habit.setTargetAmount(habitRequest.getTargetAmount());
-        habit.setUser(user);
+        habit.setUser(userRepository.getReferenceById(userId));
         Habit savedHabit = habitRepository.save(habit);
+        userRepository.incrementHabitsVersion(userId);
+        AfterCommit.run(() -> {
+            versionCache.invalidateUser(userId);
+            ownershipIndex.put(savedHabit.getId(), userId);
+        });
 
         return HabitResponseDTO.fromEntity(savedHabit);
     }
 
-    public HabitProgressResponseDTO recordProgress(Long habitId, HabitProgressRequestDTO progressRequest) {
-        Habit habit = habitRepository.findById(habitId)
+    public String getHabitsEtag(Long userId) {
+        UserVersion version = versionCache.user(userId);
+        if (version == null) {
+            throw new RuntimeException("User not found");
+        }
+        return "\"hl" + userId + "-" + version.habitsVersion() + "-" + LocalDate.now() + "\"";
+    }
+
+    public String getHabitEtag(Long userId, Long habitId) {
+        HabitVersion version = versionCache.habit(habitId);
+        if (version == null) {
+            throw new RuntimeException("Habit not found");
+        }
+        if (!version.userId().equals(userId)) {
+            throw new RuntimeException("Unauthorized access to habit");
+        }
+        return "\"h" + habitId + "-" + version.version() + "-" + LocalDate.now() + "\"";
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<HabitResponseDTO> getHabits(Long userId, String after, int limit) {
+        checkLimit(limit);
+
+        Slice<HabitView> slice;
+        if (after == null) {
+            slice = habitRepository.findViewsByUserId(userId, PageRequest.ofSize(limit));
+        } else {
+            String[] position = Cursors.decode(after, 1);
+            try {
+                slice = habitRepository.findViewsByUserIdAfter(userId, Long.valueOf(position[0]),
+                        PageRequest.ofSize(limit));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        List<HabitResponseDTO> items = slice.getContent().stream()
+                .map(HabitResponseDTO::fromView)
+                .collect(Collectors.toList());
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            nextCursor = Cursors.encode(items.get(items.size() - 1).getId());
+        }
+        return new CursorPageDTO<>(items, nextCursor, slice.hasNext());
+    }
+
+    @Transactional(readOnly = true)
+    public HabitResponseDTO getHabit(Long userId, Long habitId) {
+        HabitView habit = habitRepository.findViewById(habitId)
                 .orElseThrow(() -> new RuntimeException("Habit not found"));
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        if (!habit.getUser().getUsername().equals(username)) {
+        if (!habit.userId().equals(userId)) {
             throw new RuntimeException("Unauthorized access to habit");
         }
+        return HabitResponseDTO.fromView(habit);
+    }
+
+    @Transactional
+    public HabitProgressResponseDTO recordProgress(Long userId, Long habitId, HabitProgressRequestDTO progressRequest) {
+        ownershipIndex.checkOwner(userId, habitId);
+        Habit habit = habitRepository.findByIdForUpdate(habitId)
+                .orElseThrow(() -> new RuntimeException("Habit not found"));
 
         HabitProgress progress = new HabitProgress();
         progress.setDate(LocalDate.now());
         progress.setCompletedAmount(progressRequest.getCompletedAmount());
         progress.setHabit(habit);
         HabitProgress savedHabitProgress = habitProgressRepository.save(progress);
+        streakService.applyProgress(habit, progress.getDate(), progress.getCompletedAmount());
+        habitRepository.save(habit);
+        heatmapService.applyProgress(habit, progress.getDate(), progress.getCompletedAmount());
+        hotStore.recordProgress(habitId, progress.getDate(), progress.getCompletedAmount());
+        userRepository.incrementHabitsVersion(userId);
+        AfterCommit.run(() -> {
+            analyticsCache.invalidate(habitId);
+            versionCache.invalidateHabit(habitId, userId);
+        });
 
         return HabitProgressResponseDTO.fromEntity(savedHabitProgress);
     }
 
-    public HabitAnalyticsResponseDTO getAnalytics(Long habitId, String period) {
+    public HabitAnalyticsResponseDTO getAnalytics(Long userId, Long habitId, String period) {
+        LocalDate endDate = LocalDate.now();
+        HabitAnalyticsCache.Entry cached = analyticsCache.get(habitId, period, endDate);
+        if (cached != null) {
+            if (!cached.ownerId().equals(userId)) {
+                throw new RuntimeException("Unauthorized access to habit");
+            }
+            return cached.analytics();
+        }
+        long cacheGeneration = analyticsCache.generation();
+
+        ownershipIndex.checkOwner(userId, habitId);
         Habit habit = habitRepository.findById(habitId)
                 .orElseThrow(() -> new RuntimeException("Habit not found"));
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        System.out.println("Requested by: " + username + ", Habit owner: " + habit.getUser().getUsername());
-        if (!habit.getUser().getUsername().equals(username)) {
-            System.out.println("Unauthorized access detected");
-            throw new RuntimeException("Unauthorized access to habit");
+
+        LocalDate startDate = resolveStartDate(period, endDate);
+
+        long entries;
+        long totalCompleted;
+        HabitProgressHotStore.Totals totals = hotStore.sum(habitId, startDate, endDate);
+        if (totals != null) {
+            entries = totals.entries();
+            totalCompleted = totals.completedAmount();
+        } else {
+            List<HabitProgress> progressList = habitProgressRepository.findByHabitIdAndDateBetween(habitId, startDate, endDate);
+            entries = progressList.size();
+            totalCompleted = progressList.stream().mapToInt(HabitProgress::getCompletedAmount).sum();
         }
 
+        HabitAnalyticsResponseDTO analytics = toAnalytics(habit.getId(), habit.getName(), period,
+                entries, habit.getTargetAmount(), totalCompleted);
+        analytics.setCurrentStreak(habit.getFrequency().isStreakAlive(habit.getLastCompletedPeriod(), endDate)
+                ? habit.getCurrentStreak() : 0);
+        analytics.setLongestStreak(habit.getLongestStreak());
+        analyticsCache.put(habitId, period, endDate, userId, analytics, cacheGeneration);
+        return analytics;
+    }
+
+    @Transactional(readOnly = true)
+    public List<HabitAnalyticsResponseDTO> getAnalyticsForAllHabits(Long userId, String period) {
         LocalDate endDate = LocalDate.now();
-        LocalDate startDate = period.equals("week") ? endDate.minusDays(7) : endDate.minusMonths(1);
+        LocalDate startDate = resolveStartDate(period, endDate);
+
+        return habitRepository.summarizeProgressByUserId(userId, startDate, endDate).stream()
+                .map(summary -> {
+                    HabitAnalyticsResponseDTO analytics = toAnalytics(summary.habitId(), summary.habitName(), period,
+                            summary.entries(), summary.targetAmount(), summary.totalCompleted());
+                    analytics.setCurrentStreak(summary.frequency().isStreakAlive(summary.lastCompletedPeriod(), endDate)
+                            ? summary.currentStreak() : 0);
+                    analytics.setLongestStreak(summary.longestStreak());
+                    return analytics;
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public HabitSeriesRequest prepareSeries(Long userId, Long habitId, LocalDate from, LocalDate to, String bucket) {
+        SeriesBucket seriesBucket = SeriesBucket.fromValue(bucket);
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        if (ChronoUnit.DAYS.between(from, to) > MAX_SERIES_DAYS) {
+            throw new IllegalArgumentException("Series range must not exceed " + MAX_SERIES_DAYS + " days");
+        }
+
+        ownershipIndex.checkOwner(userId, habitId);
+        Habit habit = habitRepository.findById(habitId)
+                .orElseThrow(() -> new RuntimeException("Habit not found"));
+        return new HabitSeriesRequest(habitId, habit.getTargetAmount(), from, to, seriesBucket, ShardContext.current());
+    }
+
+    @Transactional(readOnly = true)
+    public void streamSeries(HabitSeriesRequest request, Consumer<HabitSeriesPointDTO> consumer) {
+        try (Stream<HabitSeriesPoint> points = habitProgressRepository.streamSeries(
+                request.habitId(), request.from(), request.to(), request.bucket().sqlUnit())) {
+            points.forEach(point -> {
+                HabitSeriesPointDTO dto = new HabitSeriesPointDTO();
+                dto.setBucketStart(point.getBucketStart());
+                dto.setTotalCompleted((int) point.getCompleted());
+                dto.setTotalTarget((int) point.getEntries() * request.targetAmount());
+                consumer.accept(dto);
+            });
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<HabitProgressResponseDTO> getProgressHistory(Long userId, Long habitId, String before, int limit) {
+        checkLimit(limit);
+        ownershipIndex.checkOwner(userId, habitId);
+
+        Slice<ProgressEntry> slice;
+        if (before == null) {
+            slice = habitProgressRepository.findLatestEntries(habitId, PageRequest.ofSize(limit));
+        } else {
+            String[] position = Cursors.decode(before, 2);
+            try {
+                slice = habitProgressRepository.findEntriesBefore(habitId, LocalDate.parse(position[0]),
+                        Long.valueOf(position[1]), PageRequest.ofSize(limit));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        List<HabitProgressResponseDTO> items = slice.getContent().stream()
+                .map(entry -> {
+                    HabitProgressResponseDTO dto = new HabitProgressResponseDTO();
+                    dto.setId(entry.id());
+                    dto.setDate(entry.date());
+                    dto.setCompletedAmount(entry.completedAmount());
+                    dto.setHabitId(habitId);
+                    return dto;
+                })
+                .collect(Collectors.toList());
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            ProgressEntry last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            nextCursor = Cursors.encode(last.date(), last.id());
+        }
+        return new CursorPageDTO<>(items, nextCursor, slice.hasNext());
+    }
 
-        List<HabitProgress> progressList = habitProgressRepository.findByHabitIdAndDateBetween(habitId, startDate, endDate);
-        int totalTarget = progressList.size() * habit.getTargetAmount();
-        int totalCompleted = progressList.stream().mapToInt(HabitProgress::getCompletedAmount).sum();
+    /**
+     * Checks that the habit exists and belongs to the given user without loading it.
+     */
+    private static void checkLimit(int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private static LocalDate resolveStartDate(String period, LocalDate endDate) {
+        return period.equals("week") ? endDate.minusDays(7) : endDate.minusMonths(1);
+    }
+
+    private static HabitAnalyticsResponseDTO toAnalytics(Long habitId, String habitName, String period,
+                                                         long entries, int targetAmount, long totalCompleted) {
+        int totalTarget = (int) entries * targetAmount;
         double completionPercentage = totalTarget > 0 ? (double) totalCompleted / totalTarget * 100 : 0;
 
         HabitAnalyticsResponseDTO analytics = new HabitAnalyticsResponseDTO();
-        analytics.setHabitName(habit.getName());
+        analytics.setHabitId(habitId);
+        analytics.setHabitName(habitName);
         analytics.setPeriod(period);
         analytics.setTotalTarget(totalTarget);
-        analytics.setTotalCompleted(totalCompleted);
+        analytics.setTotalCompleted((int) totalCompleted);
         analytics.setCompletionPercentage(String.format(Locale.US, "%.2f%%", completionPercentage)); // Используем Locale.US
         return analytics;
     }
-
 }
@@ -0,0 +1,117 @@
+package com.example.habits.service.impl;
+
+import com.example.habits.cache.HabitHeatmapCache;
+import com.example.habits.cache.HabitOwnershipIndex;
+import com.example.habits.domain.CompletionBitmap;
+import com.example.habits.domain.Frequency;
+import com.example.habits.domain.Habit;
+import com.example.habits.domain.HabitYearBitmap;
+import com.example.habits.dto.habit.HabitHeatmapResponseDTO;
+import com.example.habits.repository.HabitProgressRepository;
+import com.example.habits.repository.HabitRepository;
+import com.example.habits.repository.HabitYearBitmapRepository;
+import com.example.habits.repository.projection.DailyProgressTotal;
+import com.example.habits.service.HeatmapService;
+import com.example.habits.util.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Maintains one {@link CompletionBitmap} per habit and year. A day is marked completed when its total
+ * reaches the target of a daily habit, or when anything was recorded for a weekly one.
+ */
+@Service
+@RequiredArgsConstructor
+public class HeatmapServiceImpl implements HeatmapService {
+
+    private static final int MIN_YEAR = 1970;
+    private static final int MAX_YEAR = 9999;
+
+    private final HabitRepository habitRepository;
+    private final HabitProgressRepository habitProgressRepository;
+    private final HabitYearBitmapRepository bitmapRepository;
+    private final HabitHeatmapCache heatmapCache;
+    private final HabitOwnershipIndex ownershipIndex;
+
+    @Override
+    @Transactional
+    public void applyProgress(Habit habit, LocalDate date, int completedAmount) {
+        int year = date.getYear();
+        Optional<HabitYearBitmap> existing = bitmapRepository.findForUpdate(habit.getId(), year);
+
+        HabitYearBitmap row;
+        CompletionBitmap updated;
+        if (existing.isPresent()) {
+            row = existing.get();
+            CompletionBitmap current = CompletionBitmap.decode(row.getData());
+            int amount = current.amount(date.getDayOfYear()) + completedAmount;
+            updated = current.withDay(date.getDayOfYear(), amount, isDayCompleted(habit, amount));
+        } else {
+            // First write of the year: the history already contains the progress being recorded.
+            row = new HabitYearBitmap();
+            row.setHabitId(habit.getId());
+            row.setYear(year);
+            updated = buildFromHistory(habit, year);
+        }
+        row.setData(updated.encode());
+        bitmapRepository.save(row);
+
+        AfterCommit.run(() -> heatmapCache.invalidate(habit.getId(), year));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public HabitHeatmapResponseDTO getHeatmap(Long userId, Long habitId, int year) {
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            throw new IllegalArgumentException("Invalid year: " + year);
+        }
+        ownershipIndex.checkOwner(userId, habitId);
+        Habit habit = habitRepository.findById(habitId)
+                .orElseThrow(() -> new RuntimeException("Habit not found"));
+
+        CompletionBitmap bitmap = heatmapCache.get(habitId, year,
+                () -> bitmapRepository.findByHabitIdAndYear(habitId, year)
+                        .map(row -> CompletionBitmap.decode(row.getData()))
+                        .orElseGet(() -> buildFromHistory(habit, year)));
+
+        HabitHeatmapResponseDTO dto = new HabitHeatmapResponseDTO();
+        dto.setHabitId(habitId);
+        dto.setYear(year);
+        dto.setCompletedDays(bitmap.completedDays());
+        dto.setCompletionBitmap(bitmap.bits());
+        dto.setAmounts(bitmap.amounts());
+        dto.setEtag(String.format("\"%d-%d-%08x\"", habitId, year, bitmap.checksum()));
+        return dto;
+    }
+
+    /**
+     * Drops the persisted bitmaps of the years whose history was rewritten. They are rebuilt from history
+     * on the next read and persisted again on the next write.
+     */
+    @Override
+    @Transactional
+    public void refresh(Long habitId, Set<Integer> years) {
+        bitmapRepository.deleteByHabitIdAndYearIn(habitId, years);
+        AfterCommit.run(() -> years.forEach(year -> heatmapCache.invalidate(habitId, year)));
+    }
+
+    private CompletionBitmap buildFromHistory(Habit habit, int year) {
+        CompletionBitmap bitmap = CompletionBitmap.empty();
+        LocalDate startDate = LocalDate.of(year, 1, 1);
+        LocalDate endDate = LocalDate.of(year, 12, 31);
+        for (DailyProgressTotal total : habitProgressRepository.findDailyTotals(habit.getId(), startDate, endDate)) {
+            int amount = (int) total.completedAmount();
+            bitmap = bitmap.withDay(total.date().getDayOfYear(), amount, isDayCompleted(habit, amount));
+        }
+        return bitmap;
+    }
+
+    private static boolean isDayCompleted(Habit habit, int amount) {
+        return habit.getFrequency() == Frequency.DAILY ? amount >= habit.getTargetAmount() : amount > 0;
+    }
+}
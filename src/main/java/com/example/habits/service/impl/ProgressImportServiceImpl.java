@@ -0,0 +1,155 @@
+package com.example.habits.service.impl;
+
+import com.example.habits.cache.HabitAnalyticsCache;
+import com.example.habits.cache.HabitOwnershipIndex;
+import com.example.habits.cache.HabitProgressHotStore;
+import com.example.habits.domain.HistoryFormat;
+import com.example.habits.dto.habit.HabitImportResponseDTO;
+import com.example.habits.repository.HabitProgressImportRepository;
+import com.example.habits.repository.HabitRepository;
+import com.example.habits.repository.ProgressImportStaging;
+import com.example.habits.service.HeatmapService;
+import com.example.habits.service.ProgressImportService;
+import com.example.habits.service.StreakService;
+import com.example.habits.util.AfterCommit;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Imports daily progress totals for one habit. Each line is validated while the body is read and sent to
+ * a staging table with {@code COPY}; every imported day then replaces the progress stored for that day.
+ * CSV lines are {@code date,completed_amount} with an optional header, NDJSON lines are
+ * {@code {"date": ..., "completedAmount": ...}}.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProgressImportServiceImpl implements ProgressImportService {
+    private static final long MAX_IMPORT_ROWS = 100_000;
+
+    private final HabitRepository habitRepository;
+    private final HabitProgressImportRepository importRepository;
+    private final StreakService streakService;
+    private final HeatmapService heatmapService;
+    private final HabitAnalyticsCache analyticsCache;
+    private final HabitProgressHotStore hotStore;
+    private final HabitOwnershipIndex ownershipIndex;
+    private final ObjectMapper objectMapper;
+
+    @Transactional
+    public HabitImportResponseDTO importProgress(Long userId, Long habitId, String format, InputStream body) {
+        HistoryFormat importFormat = HistoryFormat.fromValue(format);
+        ownershipIndex.checkOwner(userId, habitId);
+
+        long rows;
+        Map<LocalDate, Long> dailyTotals = new HashMap<>();
+        try {
+            ProgressImportStaging staging = importRepository.openStaging();
+            try {
+                rows = stage(staging, importFormat, body, dailyTotals);
+            } catch (RuntimeException | IOException e) {
+                staging.cancel();
+                throw e;
+            }
+        } catch (IOException | SQLException e) {
+            throw new RuntimeException("Failed to import progress: " + e.getMessage(), e);
+        }
+        if (rows == 0) {
+            return new HabitImportResponseDTO(habitId, 0, 0);
+        }
+
+        // Serializes with recordProgress, which holds the same lock, so neither write loses the habit's version
+        // race at commit. Taken once the body is staged, so a slow upload does not block progress recording.
+        habitRepository.findByIdForUpdate(habitId)
+                .orElseThrow(() -> new RuntimeException("Habit not found"));
+        int days = importRepository.mergeStaging(habitId);
+        streakService.recomputeStreaks(habitId);
+        heatmapService.refresh(habitId, dailyTotals.keySet().stream()
+                .map(LocalDate::getYear)
+                .collect(Collectors.toCollection(TreeSet::new)));
+        AfterCommit.run(() -> {
+            analyticsCache.invalidate(habitId);
+            hotStore.invalidate(habitId);
+        });
+        return new HabitImportResponseDTO(habitId, rows, days);
+    }
+
+    private long stage(ProgressImportStaging staging, HistoryFormat format, InputStream body,
+                       Map<LocalDate, Long> dailyTotals) throws IOException, SQLException {
+        LocalDate today = LocalDate.now();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        long rows = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && format == HistoryFormat.CSV && line.startsWith("date"))) {
+                continue;
+            }
+            ImportedDay day = format == HistoryFormat.NDJSON ? parseNdjson(line, lineNumber) : parseCsv(line, lineNumber);
+            if (day.date().isAfter(today)) {
+                throw new IllegalArgumentException("Invalid row " + lineNumber + ": date is in the future");
+            }
+            if (day.completedAmount() < 0) {
+                throw new IllegalArgumentException("Invalid row " + lineNumber + ": completed amount cannot be negative");
+            }
+            // The rows of a day are summed into one integer completed_amount when merged.
+            if (dailyTotals.merge(day.date(), (long) day.completedAmount(), Long::sum) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid row " + lineNumber + ": total completed amount of "
+                        + day.date() + " exceeds " + Integer.MAX_VALUE);
+            }
+            if (++rows > MAX_IMPORT_ROWS) {
+                throw new IllegalArgumentException("Import must not exceed " + MAX_IMPORT_ROWS + " rows");
+            }
+            staging.add(day.date(), day.completedAmount());
+        }
+        return staging.finish();
+    }
+
+    private static ImportedDay parseCsv(String line, int lineNumber) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 2) {
+            throw new IllegalArgumentException("Invalid row " + lineNumber + ": expected date,completed_amount");
+        }
+        return parse(fields[0].trim(), fields[1].trim(), lineNumber);
+    }
+
+    private ImportedDay parseNdjson(String line, int lineNumber) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (!node.hasNonNull("date") || !node.hasNonNull("completedAmount")) {
+                throw new IllegalArgumentException("Invalid row " + lineNumber + ": expected date and completedAmount");
+            }
+            return parse(node.get("date").asText(), node.get("completedAmount").asText(), lineNumber);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid row " + lineNumber + ": malformed JSON");
+        }
+    }
+
+    private static ImportedDay parse(String date, String completedAmount, int lineNumber) {
+        try {
+            return new ImportedDay(LocalDate.parse(date), Integer.parseInt(completedAmount));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid row " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    private record ImportedDay(LocalDate date, int completedAmount) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.habits.service.impl;
+
+import com.example.habits.cache.ResourceVersionCache;
+import com.example.habits.domain.Frequency;
+import com.example.habits.domain.Habit;
+import com.example.habits.repository.HabitProgressRepository;
+import com.example.habits.repository.HabitRepository;
+import com.example.habits.repository.UserRepository;
+import com.example.habits.repository.projection.DailyProgressTotal;
+import com.example.habits.service.StreakService;
+import com.example.habits.util.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Keeps the streak columns of {@link Habit} up to date. A period (day or ISO week, depending on the
+ * habit frequency) counts as completed once the amounts recorded in it reach the habit's target.
+ */
+@Service
+@RequiredArgsConstructor
+public class StreakServiceImpl implements StreakService {
+
+    private final HabitRepository habitRepository;
+    private final HabitProgressRepository habitProgressRepository;
+    private final UserRepository userRepository;
+    private final ResourceVersionCache versionCache;
+
+    @Override
+    public void applyProgress(Habit habit, LocalDate date, int completedAmount) {
+        Frequency frequency = habit.getFrequency();
+        LocalDate periodStart = frequency.periodStart(date);
+        if (habit.getCurrentPeriodStart() != null && periodStart.isBefore(habit.getCurrentPeriodStart())) {
+            // Late writes for an already closed period are picked up by the repair job.
+            return;
+        }
+        if (!periodStart.equals(habit.getCurrentPeriodStart())) {
+            habit.setCurrentPeriodStart(periodStart);
+            habit.setCurrentPeriodAmount(0);
+        }
+        habit.setCurrentPeriodAmount(habit.getCurrentPeriodAmount() + completedAmount);
+
+        if (habit.getCurrentPeriodAmount() >= habit.getTargetAmount()
+                && !periodStart.equals(habit.getLastCompletedPeriod())) {
+            completePeriod(habit, periodStart);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void recomputeStreaks(Long habitId) {
+        Habit habit = habitRepository.findById(habitId)
+                .orElseThrow(() -> new RuntimeException("Habit not found"));
+        int currentStreak = habit.getCurrentStreak();
+        int longestStreak = habit.getLongestStreak();
+        LocalDate lastCompletedPeriod = habit.getLastCompletedPeriod();
+        habit.setCurrentStreak(0);
+        habit.setLongestStreak(0);
+        habit.setLastCompletedPeriod(null);
+        habit.setCurrentPeriodStart(null);
+        habit.setCurrentPeriodAmount(0);
+
+        List<DailyProgressTotal> totals = habitProgressRepository.findAllDailyTotals(habitId);
+        for (DailyProgressTotal total : totals) {
+            applyProgress(habit, total.date(), (int) total.completedAmount());
+        }
+        habitRepository.save(habit);
+
+        Long userId = habit.getUser().getId();
+        if (habit.getCurrentStreak() != currentStreak || habit.getLongestStreak() != longestStreak
+                || !Objects.equals(habit.getLastCompletedPeriod(), lastCompletedPeriod)) {
+            userRepository.incrementHabitsVersion(userId);
+        }
+        AfterCommit.run(() -> versionCache.invalidateHabit(habitId, userId));
+    }
+
+    private void completePeriod(Habit habit, LocalDate periodStart) {
+        LocalDate previous = habit.getFrequency().previousPeriodStart(periodStart);
+        int streak = previous.equals(habit.getLastCompletedPeriod()) ? habit.getCurrentStreak() + 1 : 1;
+        habit.setCurrentStreak(streak);
+        habit.setLongestStreak(Math.max(habit.getLongestStreak(), streak));
+        habit.setLastCompletedPeriod(periodStart);
+    }
+}
@@ -1,77 +1,251 @@
 package com.example.habits.service.impl;
 
+import com.example.habits.cache.ResourceVersionCache;
+import com.example.habits.cache.UserSearchCache;
+import com.example.habits.datasource.ShardContext;
+import com.example.habits.datasource.ShardDirectory;
 import com.example.habits.domain.User;
+import com.example.habits.dto.page.CursorPageDTO;
 import com.example.habits.dto.user.ProfileResponseDTO;
 import com.example.habits.dto.user.UpdateProfileRequestDTO;
+import com.example.habits.exception.ConflictException;
+import com.example.habits.exception.PreconditionRequiredException;
+import com.example.habits.exception.ResourceNotFoundException;
+import com.example.habits.repository.AccountPurgeRepository;
+import com.example.habits.repository.RefreshTokenRepository;
 import com.example.habits.repository.UserRepository;
+import com.example.habits.repository.UserSearchRepository;
+import com.example.habits.repository.projection.UserProfileView;
+import com.example.habits.repository.projection.UserVersion;
+import com.example.habits.repository.projection.VersionedProfile;
 import com.example.habits.service.UserService;
+import com.example.habits.util.AfterCommit;
+import com.example.habits.util.Cursors;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
-
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_RESULTS = 50;
+    private static final int MIN_QUERY_LENGTH = 2;
+    private static final int MAX_QUERY_LENGTH = 100;
     private final UserRepository userRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final AccountPurgeRepository accountPurgeRepository;
+    private final ResourceVersionCache versionCache;
+    private final UserSearchRepository userSearchRepository;
+    private final UserSearchCache searchCache;
+    private final ShardDirectory shardDirectory;
 
 
     @Override
     public Optional<ProfileResponseDTO> getUserById(Long id) {
-        return userRepository.findById(id)
+        OptionalInt shard = shardDirectory.shardOfUser(id);
+        if (shard.isEmpty()) {
+            return Optional.empty();
+        }
+        return ShardContext.call(shard.getAsInt(), () -> userRepository.findById(id))
+                .filter(user -> user.getDeletedAt() == null)
                 .map(ProfileResponseDTO::fromEntity);
     }
 
     @Override
-    public ProfileResponseDTO getProfile(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+    public ProfileResponseDTO getProfile(Long id) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
         return ProfileResponseDTO.fromEntity(user);
     }
 
+    @Override
+    public Optional<String> getProfileEtag(Long id) {
+        OptionalInt shard = shardDirectory.shardOfUser(id);
+        if (shard.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(ShardContext.call(shard.getAsInt(), () -> versionCache.user(id)))
+                .map(UserServiceImpl::profileEtag);
+    }
 
     @Override
-    public ProfileResponseDTO updateUser(Long id, UpdateProfileRequestDTO request) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
-        user.setEmail(request.getEmail());
-        user.setFullName(request.getFullName());
-        User updatedUser = userRepository.save(user);
-        return ProfileResponseDTO.fromEntity(updatedUser);
+    public String getOwnProfileEtag(Long id) {
+        UserVersion version = versionCache.user(id);
+        if (version == null) {
+            throw new UsernameNotFoundException("User not found with id: " + id);
+        }
+        return profileEtag(version);
+    }
+
+
+    /**
+     * Updates the profile in a single statement. When {@code ifMatch} carries a profile ETag the update only
+     * applies to that version of the profile; {@code *} updates whatever version is current. Without
+     * {@code ifMatch} nothing is updated, so a client cannot silently overwrite a concurrent edit.
+     * With several shards the new email is claimed across shards first, see {@link ShardDirectory}.
+     */
+    @Override
+    public ProfileResponseDTO updateUser(Long id, UpdateProfileRequestDTO request, String ifMatch) {
+        Long expectedVersion = parseProfileVersion(id, ifMatch);
+        User claimant = shardDirectory.shardCount() > 1 ? claimEmail(id, request.getEmail()) : null;
+        VersionedProfile updated = null;
+        try {
+            updated = userRepository.updateProfile(id, request.getEmail(), request.getFullName(), expectedVersion)
+                    .orElse(null);
+        } catch (DuplicateKeyException e) {
+            throw new ConflictException("Email is already in use");
+        } finally {
+            if (claimant != null) {
+                settleEmailClaims(claimant, request.getEmail(), updated != null);
+            }
+        }
+        if (updated == null) {
+            if (expectedVersion != null && userRepository.findVersionById(id).isPresent()) {
+                throw new ConflictException("Profile was modified concurrently");
+            }
+            throw new ResourceNotFoundException("User not found with id: " + id);
+        }
+        AfterCommit.run(() -> versionCache.invalidateUser(id));
+
+        ProfileResponseDTO dto = new ProfileResponseDTO();
+        dto.setId(updated.id());
+        dto.setUsername(updated.username());
+        dto.setEmail(updated.email());
+        dto.setFullName(updated.fullName());
+        return dto;
     }
 
+    /**
+     * Marks the account deleted and signs it out; its data is removed later by the account purge job.
+     */
     @Override
+    @Transactional
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
+        if (userRepository.markDeleted(id, Instant.now()) == 0) {
             throw new RuntimeException("User not found with id: " + id);
         }
-        userRepository.deleteById(id);
+        refreshTokenRepository.deleteByUserId(id);
+        accountPurgeRepository.schedule(id);
+        AfterCommit.run(() -> versionCache.evictUser(id));
     }
 
 
     @Override
-    public List<ProfileResponseDTO> getAllUsers(int limit, int offset) {
-        Pageable pageable = PageRequest.of(offset / limit, limit);
-        Page<User> userPage = userRepository.findAll(pageable);
-        return userPage.getContent().stream()
-                .map(ProfileResponseDTO::fromEntity)
+    public CursorPageDTO<ProfileResponseDTO> getAllUsers(String after, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        long afterId = 0;
+        if (after != null) {
+            try {
+                afterId = Long.parseLong(Cursors.decode(after, 1)[0]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        // Ids are unique across shards, so merging the next page of every shard by id gives the next page overall.
+        long cursorId = afterId;
+        List<Slice<UserProfileView>> slices = shardDirectory.scatter(
+                () -> userRepository.findProfilesAfter(cursorId, PageRequest.ofSize(limit)));
+        List<UserProfileView> merged = slices.stream()
+                .flatMap(slice -> slice.getContent().stream())
+                .sorted(Comparator.comparing(UserProfileView::id))
+                .collect(Collectors.toList());
+        boolean hasNext = merged.size() > limit || slices.stream().anyMatch(Slice::hasNext);
+        List<ProfileResponseDTO> users = merged.stream()
+                .limit(limit)
+                .map(ProfileResponseDTO::fromView)
                 .collect(Collectors.toList());
+        String nextCursor = null;
+        if (hasNext) {
+            nextCursor = Cursors.encode(users.get(users.size() - 1).getId());
+        }
+        return new CursorPageDTO<>(users, nextCursor, hasNext);
     }
 
 
+    private User claimEmail(Long id, String email) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
+        boolean usedElsewhere = shardDirectory.scatter(() -> userRepository.findByEmail(email)
+                .filter(other -> !other.getId().equals(id))
+                .isPresent()).contains(true);
+        if (usedElsewhere || !shardDirectory.claimEmail(email, user.getUsername(), ShardContext.current())) {
+            throw new ConflictException("Email is already in use");
+        }
+        return user;
+    }
+
+    /**
+     * Keeps only the claim of the email the user ends up with: the previous one after an update, the new
+     * one being dropped again when the update did not happen.
+     */
+    private void settleEmailClaims(User user, String email, boolean updated) {
+        if (updated) {
+            shardDirectory.releaseEmailsExcept(user.getUsername(), email);
+        } else if (!email.equals(user.getEmail())) {
+            shardDirectory.releaseEmail(email, user.getUsername());
+        }
+    }
+
+    private static String profileEtag(UserVersion version) {
+        return "\"u" + version.id() + "-" + version.version() + "\"";
+    }
+
+    private static Long parseProfileVersion(Long id, String ifMatch) {
+        if (ifMatch == null) {
+            throw new PreconditionRequiredException("If-Match header is required");
+        }
+        if (ifMatch.equals("*")) {
+            return null;
+        }
+        String prefix = "\"u" + id + "-";
+        if (!ifMatch.startsWith(prefix) || !ifMatch.endsWith("\"")) {
+            throw new IllegalArgumentException("Invalid If-Match header");
+        }
+        try {
+            return Long.valueOf(ifMatch.substring(prefix.length(), ifMatch.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid If-Match header");
+        }
+    }
+
+    @Override
+    public List<ProfileResponseDTO> searchUsers(String query, int limit) {
+        String normalized = query == null ? "" : query.strip().toLowerCase(Locale.ROOT);
+        if (normalized.length() < MIN_QUERY_LENGTH || normalized.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Query must be between " + MIN_QUERY_LENGTH + " and "
+                    + MAX_QUERY_LENGTH + " characters");
+        }
+        if (limit <= 0 || limit > MAX_SEARCH_RESULTS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SEARCH_RESULTS);
+        }
+        return searchCache.get(normalized, limit, () -> userSearchRepository.search(normalized, limit)).stream()
+                .map(ProfileResponseDTO::fromView)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) {
         User user = userRepository.findByUsername(username)
+                .filter(found -> found.getDeletedAt() == null)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
         return new org.springframework.security.core.userdetails.User(
                 user.getUsername(),
@@ -79,10 +253,4 @@ public class UserServiceImpl implements UserService {
                 Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
         );
     }
-
-    @Override
-    public User getCurrentUser(String username) {
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
-    }
 }
@@ -0,0 +1,42 @@
+package com.example.habits.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public final class Cursors {
+
+    private static final String SEPARATOR = ",";
+
+    private Cursors() {
+    }
+
+    /**
+     * Packs the sort key of the last returned row into an opaque, URL-safe cursor.
+     */
+    public static String encode(Object... keyParts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : keyParts) {
+            if (!key.isEmpty()) {
+                key.append(SEPARATOR);
+            }
+            key.append(part);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Unpacks a cursor produced by {@link #encode}, expecting exactly {@code partCount} key parts.
+     */
+    public static String[] decode(String cursor, int partCount) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = key.split(SEPARATOR, -1);
+            if (parts.length != partCount) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
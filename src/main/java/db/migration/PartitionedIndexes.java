@@ -0,0 +1,44 @@
+package db.migration;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds an index on a partitioned table without blocking writes. {@code CREATE INDEX CONCURRENTLY} is not
+ * supported on a partitioned table, so the index is declared on the parent only, built concurrently on each
+ * existing partition and attached. Partitions created later inherit it automatically. Must run outside a
+ * transaction.
+ */
+final class PartitionedIndexes {
+
+    private PartitionedIndexes() {
+    }
+
+    static void createConcurrently(Statement statement, String table, String indexName, String partitionSuffix,
+                                   String definition) throws SQLException {
+        statement.execute("CREATE INDEX IF NOT EXISTS " + indexName + " ON ONLY " + table + " " + definition);
+        for (String partition : findPartitions(statement, table)) {
+            String partitionIndex = partition + partitionSuffix;
+            statement.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + partitionIndex +
+                    " ON " + partition + " " + definition);
+            statement.execute("ALTER INDEX " + indexName + " ATTACH PARTITION " + partitionIndex);
+        }
+    }
+
+    private static List<String> findPartitions(Statement statement, String table) throws SQLException {
+        List<String> partitions = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = '" + table + "' ORDER BY c.relname")) {
+            while (resultSet.next()) {
+                partitions.add(resultSet.getString(1));
+            }
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,32 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Enables {@code pg_trgm} and adds trigram GIN indexes on the user columns searched by substring and
+ * similarity: username, email and full name. Built without blocking writes, outside a transaction.
+ */
+public class V12__Add_user_search_indexes extends BaseJavaMigration {
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            statement.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_username_trgm " +
+                    "ON users USING gin (username gin_trgm_ops)");
+            statement.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_email_trgm " +
+                    "ON users USING gin (email gin_trgm_ops)");
+            statement.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_full_name_trgm " +
+                    "ON users USING gin (full_name gin_trgm_ops)");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Adds the indexes behind the repository access paths without blocking writes. Habits by user are indexed
+ * as {@code (user_id, id)}, so a user's habits are read in id order straight from the index when listed page
+ * by page. Progress is indexed in keyset order, {@code (habit_id, date DESC, id DESC)}, which also serves
+ * every range read by habit and date. Refresh tokens are indexed by user.
+ * The migration runs outside a transaction.
+ */
+public class V6__Add_query_indexes extends BaseJavaMigration {
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_habits_user_keyset ON habits (user_id, id)");
+            statement.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_refresh_tokens_user_id " +
+                    "ON refresh_tokens (user_id)");
+            PartitionedIndexes.createConcurrently(statement, "habit_progress", "idx_habit_progress_keyset",
+                    "_keyset_idx", "(habit_id, date DESC, id DESC) INCLUDE (completed_amount)");
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- Optimistic-lock versions of users and habits, and a per-user counter bumped whenever any habit of the
+-- user changes. They back the ETags of profile and habit reads.
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN habits_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE habits ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
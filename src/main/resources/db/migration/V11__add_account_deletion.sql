@@ -0,0 +1,13 @@
+-- Accounts are deleted in two steps: the user row is marked deleted at once, then everything the user
+-- owns is purged in bounded chunks by AccountPurgeJob, which keeps its position in account_purges.
+ALTER TABLE users ADD COLUMN deleted_at TIMESTAMP WITH TIME ZONE;
+
+CREATE TABLE account_purges (
+    user_id BIGINT PRIMARY KEY,
+    phase VARCHAR(20) NOT NULL,
+    purged_rows BIGINT NOT NULL DEFAULT 0,
+    requested_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    completed_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX idx_account_purges_pending ON account_purges (requested_at) WHERE completed_at IS NULL;
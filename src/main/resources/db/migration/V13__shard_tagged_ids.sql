@@ -0,0 +1,32 @@
+-- Ids become unique across shards: next_shard_id() hands out shard_id_seq * 1024 + shard, where the shard
+-- comes from the shard_id Flyway placeholder. The sequence starts at 2^32, so every new id is at least 2^42
+-- and cannot collide with ids handed out by the BIGSERIAL sequences before this migration. Ids stay below
+-- 2^53 and are therefore exact as JSON numbers.
+
+CREATE SEQUENCE shard_id_seq START WITH 4294967296;
+
+CREATE FUNCTION next_shard_id() RETURNS BIGINT AS $$
+    SELECT nextval('shard_id_seq') * 1024 + ${shard_id};
+$$ LANGUAGE sql;
+
+ALTER TABLE users ALTER COLUMN id SET DEFAULT next_shard_id();
+ALTER TABLE refresh_tokens ALTER COLUMN id SET DEFAULT next_shard_id();
+ALTER TABLE habits ALTER COLUMN id SET DEFAULT next_shard_id();
+ALTER TABLE habit_progress ALTER COLUMN id SET DEFAULT next_shard_id();
+ALTER TABLE habit_year_bitmaps ALTER COLUMN id SET DEFAULT next_shard_id();
+ALTER TABLE habit_progress_archive ALTER COLUMN id SET DEFAULT next_shard_id();
+
+-- Rows written straight into a partition take the partition's default, so every existing partition of
+-- habit_progress, habit_progress_default included, gets the new default explicitly. Partitions created
+-- later copy it from the parent.
+DO $$
+DECLARE
+    partition_name REGCLASS;
+BEGIN
+    FOR partition_name IN SELECT inhrelid::REGCLASS FROM pg_inherits WHERE inhparent = 'habit_progress'::REGCLASS LOOP
+        EXECUTE format('ALTER TABLE %s ALTER COLUMN id SET DEFAULT next_shard_id()', partition_name);
+    END LOOP;
+END;
+$$;
+
+-- account_purges is keyed by user_id and has no generated id, so it needs no default.
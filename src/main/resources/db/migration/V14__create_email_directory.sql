@@ -0,0 +1,9 @@
+-- users.email is only unique within one shard. With several shards every email in use is also claimed here,
+-- see ShardDirectory.claimEmail; only the table on shard 0 is used, the other shards carry an empty copy.
+CREATE TABLE email_directory (
+    email VARCHAR(100) PRIMARY KEY,
+    username VARCHAR(50) NOT NULL,
+    shard INTEGER NOT NULL
+);
+
+CREATE INDEX idx_email_directory_username ON email_directory (username);
@@ -0,0 +1,6 @@
+ALTER TABLE habits
+    ADD COLUMN current_streak INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN longest_streak INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN last_completed_period DATE,
+    ADD COLUMN current_period_start DATE,
+    ADD COLUMN current_period_amount INTEGER NOT NULL DEFAULT 0;
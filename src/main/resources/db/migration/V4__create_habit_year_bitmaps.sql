@@ -0,0 +1,8 @@
+CREATE TABLE habit_year_bitmaps (
+    id BIGSERIAL PRIMARY KEY,
+    habit_id BIGINT NOT NULL,
+    bitmap_year INTEGER NOT NULL,
+    data BYTEA NOT NULL,
+    UNIQUE (habit_id, bitmap_year),
+    FOREIGN KEY (habit_id) REFERENCES habits(id) ON DELETE CASCADE
+);
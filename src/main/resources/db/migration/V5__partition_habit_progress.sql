@@ -0,0 +1,55 @@
+-- habit_progress becomes a table partitioned by month on date. Rows outside every monthly
+-- partition land in habit_progress_default until a partition for their month is created.
+
+ALTER TABLE habit_progress RENAME TO habit_progress_legacy;
+ALTER SEQUENCE habit_progress_id_seq OWNED BY NONE;
+
+CREATE TABLE habit_progress (
+    id BIGINT NOT NULL DEFAULT nextval('habit_progress_id_seq'),
+    date DATE NOT NULL,
+    completed_amount INTEGER NOT NULL,
+    habit_id BIGINT NOT NULL,
+    PRIMARY KEY (id, date),
+    FOREIGN KEY (habit_id) REFERENCES habits(id) ON DELETE CASCADE
+) PARTITION BY RANGE (date);
+
+ALTER SEQUENCE habit_progress_id_seq OWNED BY habit_progress.id;
+
+CREATE TABLE habit_progress_default PARTITION OF habit_progress DEFAULT;
+
+-- Creates the partition habit_progress_pYYYYMM for the month containing month_start. Rows of that
+-- month already sitting in the default partition are moved into the new partition.
+CREATE FUNCTION create_habit_progress_partition(month_start DATE) RETURNS TEXT AS $$
+DECLARE
+    range_start DATE := date_trunc('month', month_start)::DATE;
+    range_end DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'habit_progress_p' || to_char(range_start, 'YYYYMM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN partition_name;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM habit_progress_default WHERE date >= range_start AND date < range_end) THEN
+        EXECUTE format('CREATE TABLE %I (LIKE habit_progress INCLUDING DEFAULTS)', partition_name);
+        EXECUTE format('WITH moved AS (DELETE FROM habit_progress_default WHERE date >= %L AND date < %L RETURNING *) '
+                       'INSERT INTO %I SELECT * FROM moved', range_start, range_end, partition_name);
+        EXECUTE format('ALTER TABLE habit_progress ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, range_start, range_end);
+    ELSE
+        EXECUTE format('CREATE TABLE %I PARTITION OF habit_progress FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, range_start, range_end);
+    END IF;
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_habit_progress_partition(month_start::DATE)
+FROM generate_series(
+        date_trunc('month', COALESCE((SELECT MIN(date) FROM habit_progress_legacy), CURRENT_DATE)),
+        date_trunc('month', CURRENT_DATE) + INTERVAL '3 months',
+        INTERVAL '1 month') AS month_start;
+
+INSERT INTO habit_progress (id, date, completed_amount, habit_id)
+SELECT id, date, completed_amount, habit_id FROM habit_progress_legacy;
+
+DROP TABLE habit_progress_legacy;
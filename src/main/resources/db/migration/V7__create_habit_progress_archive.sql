@@ -0,0 +1,11 @@
+-- One row per habit and month for progress moved out of habit_progress by the archive job.
+-- Element i of each array holds the totals of day i + 1 of archive_month.
+CREATE TABLE habit_progress_archive (
+    id BIGSERIAL PRIMARY KEY,
+    habit_id BIGINT NOT NULL,
+    archive_month DATE NOT NULL,
+    day_amounts INTEGER[] NOT NULL,
+    day_entries INTEGER[] NOT NULL,
+    UNIQUE (habit_id, archive_month),
+    FOREIGN KEY (habit_id) REFERENCES habits(id) ON DELETE CASCADE
+);
@@ -0,0 +1,66 @@
+package com.example.habits.cache;
+
+import com.example.habits.dto.habit.HabitAnalyticsResponseDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HabitAnalyticsCacheTest {
+
+    private final HabitAnalyticsCache cache = new HabitAnalyticsCache(100);
+    private final LocalDate today = LocalDate.now();
+
+    // Тесты для инвалидации аналитики
+    @Test
+    void shouldDropEntriesOfInvalidatedHabitOnly() {
+        cache.put(1L, "week", today, 7L, new HabitAnalyticsResponseDTO(), cache.generation());
+        cache.put(1L, "month", today, 7L, new HabitAnalyticsResponseDTO(), cache.generation());
+        cache.put(2L, "week", today, 7L, new HabitAnalyticsResponseDTO(), cache.generation());
+
+        cache.invalidate(1L);
+
+        assertThat(cache.get(1L, "week", today)).isNull();
+        assertThat(cache.get(1L, "month", today)).isNull();
+        assertThat(cache.get(2L, "week", today)).isNotNull();
+    }
+
+    @Test
+    void shouldNotReturnResultComputedBeforeInvalidation() {
+        long readGeneration = cache.generation();
+        cache.invalidate(1L);
+
+        cache.put(1L, "week", today, 7L, new HabitAnalyticsResponseDTO(), readGeneration);
+
+        assertThat(cache.get(1L, "week", today)).isNull();
+    }
+
+    @Test
+    void shouldReturnResultComputedAfterInvalidation() {
+        cache.invalidate(1L);
+
+        cache.put(1L, "week", today, 7L, new HabitAnalyticsResponseDTO(), cache.generation());
+
+        assertThat(cache.get(1L, "week", today)).isNotNull();
+    }
+
+    @Test
+    void shouldNotReturnStaleEntriesWhenInvalidationsExceedMaxSize() {
+        HabitAnalyticsCache small = new HabitAnalyticsCache(2);
+        long readGeneration = small.generation();
+        for (long habitId = 1; habitId <= 100; habitId++) {
+            small.put(habitId, "week", today, 7L, new HabitAnalyticsResponseDTO(), readGeneration);
+        }
+        for (long habitId = 1; habitId <= 100; habitId++) {
+            small.invalidate(habitId);
+        }
+
+        for (long habitId = 1; habitId <= 100; habitId++) {
+            small.put(habitId, "month", today, 7L, new HabitAnalyticsResponseDTO(), readGeneration);
+            assertThat(small.get(habitId, "month", today)).isNull();
+        }
+        small.put(1L, "month", today, 7L, new HabitAnalyticsResponseDTO(), small.generation());
+        assertThat(small.get(1L, "month", today)).isNotNull();
+    }
+}
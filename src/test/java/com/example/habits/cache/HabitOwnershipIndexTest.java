@@ -0,0 +1,107 @@
+package com.example.habits.cache;
+
+import com.example.habits.repository.HabitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HabitOwnershipIndexTest {
+
+    @Mock
+    private HabitRepository habitRepository;
+
+    private HabitOwnershipIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new HabitOwnershipIndex(habitRepository, 100_000);
+    }
+
+    @Test
+    void shouldLoadOwnerOnceAndAnswerFromMemory() {
+        when(habitRepository.findOwnerIdById(4L)).thenReturn(Optional.of(7L));
+
+        assertThat(index.ownerOf(4L)).isEqualTo(7L);
+        assertThat(index.ownerOf(4L)).isEqualTo(7L);
+
+        verify(habitRepository, times(1)).findOwnerIdById(4L);
+    }
+
+    @Test
+    void shouldNotRememberMissingHabit() {
+        when(habitRepository.findOwnerIdById(4L)).thenReturn(Optional.empty());
+
+        assertThat(index.ownerOf(4L)).isZero();
+        assertThat(index.ownerOf(4L)).isZero();
+
+        verify(habitRepository, times(2)).findOwnerIdById(4L);
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void shouldKeepEntriesWhileGrowing() {
+        for (long habitId = 1; habitId <= 5000; habitId++) {
+            index.put(habitId, habitId % 10 + 1);
+        }
+
+        for (long habitId = 1; habitId <= 5000; habitId++) {
+            assertThat(index.ownerOf(habitId)).isEqualTo(habitId % 10 + 1);
+        }
+        assertThat(index.size()).isEqualTo(5000);
+        verifyNoInteractions(habitRepository);
+    }
+
+    @Test
+    void shouldStayWithinBoundByClearing() {
+        index = new HabitOwnershipIndex(habitRepository, 1024);
+
+        for (long habitId = 1; habitId <= 3000; habitId++) {
+            index.put(habitId, 1L);
+        }
+
+        assertThat(index.size()).isBetween(1, 1024);
+        assertThat(index.ownerOf(3000L)).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldRemoveGivenHabitsAndKeepTheirProbeNeighbours() {
+        for (long habitId = 1; habitId <= 400; habitId++) {
+            index.put(habitId, habitId % 2 == 0 ? 7L : 8L);
+        }
+        List<Long> removed = LongStream.rangeClosed(1, 400).filter(id -> id % 2 == 0).boxed().toList();
+        when(habitRepository.findOwnerIdById(anyLong())).thenReturn(Optional.empty());
+
+        index.removeAll(removed);
+
+        assertThat(index.size()).isEqualTo(200);
+        for (long habitId = 1; habitId <= 400; habitId++) {
+            assertThat(index.ownerOf(habitId)).isEqualTo(habitId % 2 == 0 ? 0L : 8L);
+        }
+        verify(habitRepository, times(200)).findOwnerIdById(anyLong());
+    }
+
+    @Test
+    void shouldCheckOwnerOfHabit() {
+        index.put(1L, 7L);
+        when(habitRepository.findOwnerIdById(2L)).thenReturn(Optional.empty());
+
+        index.checkOwner(7L, 1L);
+        assertThatThrownBy(() -> index.checkOwner(8L, 1L))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Unauthorized access to habit");
+        assertThatThrownBy(() -> index.checkOwner(7L, 2L))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Habit not found");
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.habits.cache;
+
+import com.example.habits.repository.HabitProgressRepository;
+import com.example.habits.repository.projection.DailyProgressTotal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HabitProgressHotStoreTest {
+
+    @Mock
+    private HabitProgressRepository habitProgressRepository;
+
+    private HabitProgressHotStore hotStore;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        hotStore = new HabitProgressHotStore(habitProgressRepository, true, 30, 100);
+        today = LocalDate.now();
+    }
+
+    @Test
+    void shouldLoadWindowOnceAndSumFromMemory() {
+        when(habitProgressRepository.findDailyTotals(1L, today.minusDays(29), today)).thenReturn(List.of(
+                new DailyProgressTotal(today.minusDays(10), 4, 2),
+                new DailyProgressTotal(today.minusDays(2), 1, 1),
+                new DailyProgressTotal(today, 3, 1)));
+
+        HabitProgressHotStore.Totals week = hotStore.sum(1L, today.minusDays(7), today);
+        HabitProgressHotStore.Totals month = hotStore.sum(1L, today.minusDays(29), today);
+
+        assertThat(week).isEqualTo(new HabitProgressHotStore.Totals(4, 2));
+        assertThat(month).isEqualTo(new HabitProgressHotStore.Totals(8, 4));
+        verify(habitProgressRepository, times(1)).findDailyTotals(anyLong(), any(), any());
+    }
+
+    @Test
+    void shouldApplyRecordedProgressToLoadedWindow() {
+        when(habitProgressRepository.findDailyTotals(1L, today.minusDays(29), today)).thenReturn(List.of());
+        hotStore.sum(1L, today, today);
+
+        hotStore.recordProgress(1L, today, 2);
+        hotStore.recordProgress(1L, today, 1);
+
+        assertThat(hotStore.sum(1L, today, today)).isEqualTo(new HabitProgressHotStore.Totals(3, 2));
+    }
+
+    @Test
+    void shouldApplyProgressOnlyAfterCommit() {
+        when(habitProgressRepository.findDailyTotals(1L, today.minusDays(29), today)).thenReturn(List.of());
+        hotStore.sum(1L, today, today);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            hotStore.recordProgress(1L, today, 2);
+            hotStore.recordProgress(1L, today, 5);
+            assertThat(hotStore.sum(1L, today, today)).isEqualTo(new HabitProgressHotStore.Totals(0, 0));
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(hotStore.sum(1L, today, today)).isEqualTo(new HabitProgressHotStore.Totals(2, 1));
+    }
+
+    @Test
+    void shouldNotCacheWindowLoadedWhileWriteIsInFlight() {
+        when(habitProgressRepository.findDailyTotals(1L, today.minusDays(29), today)).thenReturn(List.of());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            hotStore.recordProgress(1L, today, 2);
+            hotStore.sum(1L, today, today);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        hotStore.sum(1L, today, today);
+
+        verify(habitProgressRepository, times(2)).findDailyTotals(anyLong(), any(), any());
+    }
+
+    @Test
+    void shouldReturnNullOutsideWindowOrWhenDisabled() {
+        HabitProgressHotStore disabled = new HabitProgressHotStore(habitProgressRepository, false, 30, 100);
+
+        assertThat(hotStore.sum(1L, today.minusDays(30), today)).isNull();
+        assertThat(disabled.sum(1L, today, today)).isNull();
+        verifyNoInteractions(habitProgressRepository);
+    }
+}
@@ -1,28 +1,53 @@
 package com.example.habits.controller;
 
+import com.example.habits.datasource.ShardContext;
+import com.example.habits.domain.HistoryFormat;
 import com.example.habits.domain.Frequency;
+import com.example.habits.domain.SeriesBucket;
 import com.example.habits.dto.habit.*;
+import com.example.habits.dto.page.CursorPageDTO;
 import com.example.habits.exception.GlobalExceptionHandler;
 import com.example.habits.exception.ResourceNotFoundException;
+import com.example.habits.security.CurrentUser;
+import com.example.habits.security.CurrentUserArgumentResolver;
+import com.example.habits.service.ExportService;
 import com.example.habits.service.HabitService;
+import com.example.habits.service.HeatmapService;
+import com.example.habits.service.ProgressImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +58,18 @@ class HabitControllerTest {
     @Mock
     private HabitService habitService;
 
+    @Mock
+    private HeatmapService heatmapService;
+
+    @Mock
+    private ExportService exportService;
+
+    @Mock
+    private ProgressImportService progressImportService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     @InjectMocks
     private HabitController habitController;
 
@@ -80,13 +117,15 @@ class HabitControllerTest {
         // Настройка MockMvc с глобальным обработчиком исключений
         mockMvc = MockMvcBuilders.standaloneSetup(habitController)
                 .setControllerAdvice(new GlobalExceptionHandler())
+                .setCustomArgumentResolvers(new CurrentUserArgumentResolver())
+                .defaultRequest(get("/").requestAttr(CurrentUser.REQUEST_ATTRIBUTE, new CurrentUser(1L, "testuser")))
                 .build();
     }
 
     // Тесты для createHabit
     @Test
     void shouldCreateHabitSuccessfully() throws Exception {
-        when(habitService.createHabit(any(HabitRequestDTO.class))).thenReturn(habitResponseDTO);
+        when(habitService.createHabit(eq(1L), any(HabitRequestDTO.class))).thenReturn(habitResponseDTO);
 
         mockMvc.perform(post("/api/v1/habits")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -113,7 +152,7 @@ class HabitControllerTest {
     // Тесты для recordProgress
     @Test
     void shouldRecordProgressSuccessfully() throws Exception {
-        when(habitService.recordProgress(eq(1L), any(HabitProgressRequestDTO.class))).thenReturn(habitProgressResponseDTO);
+        when(habitService.recordProgress(eq(1L), eq(1L), any(HabitProgressRequestDTO.class))).thenReturn(habitProgressResponseDTO);
 
         LocalDate now = LocalDate.now();
         int year = now.getYear();
@@ -143,7 +182,7 @@ class HabitControllerTest {
 
     @Test
     void shouldReturnNotFoundWhenRecordProgressForNonExistentHabit() throws Exception {
-        when(habitService.recordProgress(eq(1L), any(HabitProgressRequestDTO.class)))
+        when(habitService.recordProgress(eq(1L), eq(1L), any(HabitProgressRequestDTO.class)))
                 .thenThrow(new ResourceNotFoundException("Habit not found with id: 1"));
 
         mockMvc.perform(post("/api/v1/habits/1/progress")
@@ -158,7 +197,7 @@ class HabitControllerTest {
     // Тесты для getAnalytics
     @Test
     void shouldGetAnalyticsSuccessfully() throws Exception {
-        when(habitService.getAnalytics(eq(1L), eq("WEEKLY"))).thenReturn(habitAnalyticsResponseDTO);
+        when(habitService.getAnalytics(eq(1L), eq(1L), eq("WEEKLY"))).thenReturn(habitAnalyticsResponseDTO);
 
         mockMvc.perform(get("/api/v1/habits/1/analytics")
                         .param("period", "WEEKLY")
@@ -173,7 +212,7 @@ class HabitControllerTest {
 
     @Test
     void shouldReturnNotFoundWhenGetAnalyticsForNonExistentHabit() throws Exception {
-        when(habitService.getAnalytics(eq(1L), eq("WEEKLY")))
+        when(habitService.getAnalytics(eq(1L), eq(1L), eq("WEEKLY")))
                 .thenThrow(new ResourceNotFoundException("Habit not found with id: 1"));
 
         mockMvc.perform(get("/api/v1/habits/1/analytics")
@@ -187,7 +226,7 @@ class HabitControllerTest {
 
     @Test
     void shouldReturnBadRequestWhenGetAnalyticsWithInvalidPeriod() throws Exception {
-        when(habitService.getAnalytics(eq(1L), eq("INVALID")))
+        when(habitService.getAnalytics(eq(1L), eq(1L), eq("INVALID")))
                 .thenThrow(new IllegalArgumentException("Invalid period: INVALID"));
 
         mockMvc.perform(get("/api/v1/habits/1/analytics")
@@ -198,4 +237,241 @@ class HabitControllerTest {
                 .andExpect(jsonPath("$.error").value("Bad Request"))
                 .andExpect(jsonPath("$.message").value("Invalid period: INVALID"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldGetAnalyticsForAllHabitsSuccessfully() throws Exception {
+        when(habitService.getAnalyticsForAllHabits(eq(1L), eq("week"))).thenReturn(List.of(habitAnalyticsResponseDTO));
+
+        mockMvc.perform(get("/api/v1/habits/analytics")
+                        .param("period", "week")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].habitName").value("Morning Run"))
+                .andExpect(jsonPath("$[0].totalTarget").value(7))
+                .andExpect(jsonPath("$[0].totalCompleted").value(5));
+    }
+
+    // Тесты для getSeries
+    @Test
+    void shouldStreamSeriesSuccessfully() throws Exception {
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 3, 31);
+        HabitSeriesRequest seriesRequest = new HabitSeriesRequest(1L, 1, from, to, SeriesBucket.WEEK, 3);
+        when(habitService.prepareSeries(1L, 1L, from, to, "week")).thenReturn(seriesRequest);
+
+        HabitSeriesPointDTO point = new HabitSeriesPointDTO();
+        point.setBucketStart(LocalDate.of(2025, 2, 24));
+        point.setTotalCompleted(3);
+        point.setTotalTarget(4);
+        int[] streamedOnShard = {-1};
+        doAnswer(invocation -> {
+            streamedOnShard[0] = ShardContext.current();
+            Consumer<HabitSeriesPointDTO> consumer = invocation.getArgument(1);
+            consumer.accept(point);
+            return null;
+        }).when(habitService).streamSeries(eq(seriesRequest), any());
+
+        MvcResult result = mockMvc.perform(get("/api/v1/habits/1/series")
+                        .param("from", "2025-03-01")
+                        .param("to", "2025-03-31")
+                        .param("bucket", "week"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bucketStart[2]").value(24))
+                .andExpect(jsonPath("$[0].totalCompleted").value(3))
+                .andExpect(jsonPath("$[0].totalTarget").value(4));
+        assertThat(streamedOnShard[0]).isEqualTo(3);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenSeriesBucketInvalid() throws Exception {
+        when(habitService.prepareSeries(eq(1L), eq(1L), any(), any(), eq("year")))
+                .thenThrow(new IllegalArgumentException("Invalid bucket: year"));
+
+        mockMvc.perform(get("/api/v1/habits/1/series")
+                        .param("from", "2025-03-01")
+                        .param("to", "2025-03-31")
+                        .param("bucket", "year"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid bucket: year"));
+
+        verify(habitService, never()).streamSeries(any(), any());
+    }
+
+    // Тесты для getHeatmap
+    @Test
+    void shouldGetHeatmapWithEtag() throws Exception {
+        when(heatmapService.getHeatmap(1L, 1L, 2025)).thenReturn(heatmap());
+
+        mockMvc.perform(get("/api/v1/habits/1/heatmap")
+                        .param("year", "2025"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-2025-0000abcd\""))
+                .andExpect(jsonPath("$.year").value(2025))
+                .andExpect(jsonPath("$.completedDays").value(1))
+                .andExpect(jsonPath("$.amounts[0]").value(2));
+    }
+
+    @Test
+    void shouldReturnNotModifiedWhenHeatmapEtagMatches() throws Exception {
+        when(heatmapService.getHeatmap(1L, 1L, 2025)).thenReturn(heatmap());
+
+        mockMvc.perform(get("/api/v1/habits/1/heatmap")
+                        .param("year", "2025")
+                        .header("If-None-Match", "\"1-2025-0000abcd\""))
+                .andExpect(status().isNotModified());
+    }
+
+    // Тесты для getHabits
+    @Test
+    void shouldGetHabitsPage() throws Exception {
+        when(habitService.getHabitsEtag(1L)).thenReturn("\"hl1-2\"");
+        when(habitService.getHabits(1L, null, 50)).thenReturn(
+                new CursorPageDTO<>(List.of(habitResponseDTO), "next", true));
+
+        mockMvc.perform(get("/api/v1/habits"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value(habitResponseDTO.getName()))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(header().string("ETag", "\"hl1-2\""));
+    }
+
+    @Test
+    void shouldReturnNotModifiedWhenHabitsEtagMatches() throws Exception {
+        when(habitService.getHabitsEtag(1L)).thenReturn("\"hl1-2\"");
+
+        mockMvc.perform(get("/api/v1/habits")
+                        .header("If-None-Match", "\"hl1-2\""))
+                .andExpect(status().isNotModified());
+
+        verify(habitService, never()).getHabits(any(), any(), anyInt());
+    }
+
+    // Тесты для getHabit
+    @Test
+    void shouldGetHabit() throws Exception {
+        when(habitService.getHabitEtag(1L, 1L)).thenReturn("\"h1-4\"");
+        when(habitService.getHabit(1L, 1L)).thenReturn(habitResponseDTO);
+
+        mockMvc.perform(get("/api/v1/habits/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(habitResponseDTO.getName()))
+                .andExpect(header().string("ETag", "\"h1-4\""));
+    }
+
+    @Test
+    void shouldReturnNotModifiedWhenHabitEtagMatches() throws Exception {
+        when(habitService.getHabitEtag(1L, 1L)).thenReturn("\"h1-4\"");
+
+        mockMvc.perform(get("/api/v1/habits/1")
+                        .header("If-None-Match", "\"h1-4\""))
+                .andExpect(status().isNotModified());
+
+        verify(habitService, never()).getHabit(1L, 1L);
+    }
+
+    // Тесты для getProgressHistory
+    @Test
+    void shouldGetProgressHistoryPage() throws Exception {
+        when(habitService.getProgressHistory(1L, 1L, "abc", 20)).thenReturn(
+                new CursorPageDTO<>(List.of(habitProgressResponseDTO), "def", true));
+
+        mockMvc.perform(get("/api/v1/habits/1/progress")
+                        .param("before", "abc")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].completedAmount").value(1))
+                .andExpect(jsonPath("$.nextCursor").value("def"))
+                .andExpect(jsonPath("$.hasNext").value(true));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenProgressCursorInvalid() throws Exception {
+        when(habitService.getProgressHistory(1L, 1L, "bad", 50)).thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        mockMvc.perform(get("/api/v1/habits/1/progress")
+                        .param("before", "bad"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+    }
+
+    // Тесты для importProgress
+    @Test
+    void shouldImportProgress() throws Exception {
+        when(progressImportService.importProgress(eq(1L), eq(1L), eq("ndjson"), any()))
+                .thenReturn(new HabitImportResponseDTO(1L, 2, 2));
+
+        mockMvc.perform(post("/api/v1/habits/1/progress:import")
+                        .param("format", "ndjson")
+                        .contentType("application/x-ndjson")
+                        .content("{\"date\":\"2024-01-01\",\"completedAmount\":1}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.habitId").value(1))
+                .andExpect(jsonPath("$.importedRows").value(2))
+                .andExpect(jsonPath("$.importedDays").value(2));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenImportRowInvalid() throws Exception {
+        when(progressImportService.importProgress(eq(1L), eq(1L), eq("csv"), any()))
+                .thenThrow(new IllegalArgumentException("Invalid row 1: expected date,completed_amount"));
+
+        mockMvc.perform(post("/api/v1/habits/1/progress:import")
+                        .contentType("text/csv")
+                        .content("oops\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid row 1: expected date,completed_amount"));
+    }
+
+    // Тесты для exportHistory
+    @Test
+    void shouldStreamExportAsAttachment() throws Exception {
+        HabitExportRequest exportRequest = new HabitExportRequest(1L, HistoryFormat.CSV, false, 2);
+        when(exportService.prepareExport(1L, "csv", false)).thenReturn(exportRequest);
+        int[] exportedOnShard = {-1};
+        doAnswer(invocation -> {
+            exportedOnShard[0] = ShardContext.current();
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("habit_id\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).writeExport(eq(exportRequest), any());
+
+        MvcResult result = mockMvc.perform(get("/api/v1/habits/export")
+                        .param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"habits-export.csv\""))
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(content().string("habit_id\n"));
+        assertThat(exportedOnShard[0]).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenExportFormatInvalid() throws Exception {
+        when(exportService.prepareExport(1L, "xml", false))
+                .thenThrow(new IllegalArgumentException("Invalid format: xml"));
+
+        mockMvc.perform(get("/api/v1/habits/export")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid format: xml"));
+    }
+
+    private HabitHeatmapResponseDTO heatmap() {
+        HabitHeatmapResponseDTO heatmap = new HabitHeatmapResponseDTO();
+        heatmap.setHabitId(1L);
+        heatmap.setYear(2025);
+        heatmap.setCompletedDays(1);
+        heatmap.setCompletionBitmap(new byte[]{1});
+        heatmap.setAmounts(new int[]{2});
+        heatmap.setEtag("\"1-2025-0000abcd\"");
+        return heatmap;
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.habits.controller;
 
 import com.example.habits.domain.User;
+import com.example.habits.dto.page.CursorPageDTO;
 import com.example.habits.dto.user.ProfileResponseDTO;
 import com.example.habits.dto.user.UpdateProfileRequestDTO;
+import com.example.habits.exception.ConflictException;
+import com.example.habits.exception.PreconditionRequiredException;
 import com.example.habits.exception.GlobalExceptionHandler;
 import com.example.habits.exception.ResourceNotFoundException;
+import com.example.habits.security.CurrentUser;
+import com.example.habits.security.CurrentUserArgumentResolver;
 import com.example.habits.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,8 +31,12 @@ import java.util.Optional;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -75,38 +84,55 @@ class UserControllerTest {
         updateProfileRequestDTO.setFullName("New Test User");
 
         // Настройка SecurityContext
-        when(securityContext.getAuthentication()).thenReturn(authentication);
-        when(authentication.getName()).thenReturn("testuser");
+        lenient().when(securityContext.getAuthentication()).thenReturn(authentication);
+        lenient().when(authentication.getName()).thenReturn("testuser");
         SecurityContextHolder.setContext(securityContext);
 
         // Настройка MockMvc с глобальным обработчиком исключений
         mockMvc = MockMvcBuilders.standaloneSetup(userController)
                 .setControllerAdvice(new GlobalExceptionHandler())
+                .setCustomArgumentResolvers(new CurrentUserArgumentResolver())
+                .defaultRequest(get("/").requestAttr(CurrentUser.REQUEST_ATTRIBUTE, new CurrentUser(1L, "testuser")))
                 .build();
     }
 
     // Тесты для getOwnProfile
     @Test
     void shouldGetOwnProfileSuccessfully() throws Exception {
-        when(userService.getProfile("testuser")).thenReturn(profileResponseDTO);
+        when(userService.getOwnProfileEtag(1L)).thenReturn("\"u1-0\"");
+        when(userService.getProfile(1L)).thenReturn(profileResponseDTO);
 
         mockMvc.perform(get("/api/v1/users/profile")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"u1-0\""))
                 .andExpect(jsonPath("$.id").value(1L))
                 .andExpect(jsonPath("$.username").value("testuser"))
                 .andExpect(jsonPath("$.email").value("test@example.com"))
                 .andExpect(jsonPath("$.fullName").value("Test User"));
     }
 
+    @Test
+    void shouldReturnNotModifiedWhenOwnProfileEtagMatches() throws Exception {
+        when(userService.getOwnProfileEtag(1L)).thenReturn("\"u1-0\"");
+
+        mockMvc.perform(get("/api/v1/users/profile")
+                        .header("If-None-Match", "\"u1-0\""))
+                .andExpect(status().isNotModified());
+
+        verify(userService, never()).getProfile(1L);
+    }
+
     // Тесты для getProfile
     @Test
     void shouldGetProfileByIdSuccessfully() throws Exception {
+        when(userService.getProfileEtag(1L)).thenReturn(Optional.of("\"u1-3\""));
         when(userService.getUserById(1L)).thenReturn(Optional.of(profileResponseDTO));
 
         mockMvc.perform(get("/api/v1/users/1")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"u1-3\""))
                 .andExpect(jsonPath("$.id").value(1L))
                 .andExpect(jsonPath("$.username").value("testuser"))
                 .andExpect(jsonPath("$.email").value("test@example.com"))
@@ -115,7 +141,7 @@ class UserControllerTest {
 
     @Test
     void shouldReturnNotFoundWhenUserNotFoundById() throws Exception {
-        when(userService.getUserById(1L)).thenReturn(Optional.empty());
+        when(userService.getProfileEtag(1L)).thenReturn(Optional.empty());
 
         mockMvc.perform(get("/api/v1/users/1")
                         .contentType(MediaType.APPLICATION_JSON))
@@ -125,6 +151,17 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.message").value("User not found with id: 1"));
     }
 
+    @Test
+    void shouldReturnNotModifiedWhenProfileEtagMatches() throws Exception {
+        when(userService.getProfileEtag(1L)).thenReturn(Optional.of("\"u1-3\""));
+
+        mockMvc.perform(get("/api/v1/users/1")
+                        .header("If-None-Match", "\"u1-3\""))
+                .andExpect(status().isNotModified());
+
+        verify(userService, never()).getUserById(1L);
+    }
+
     // Тесты для updateProfile
     @Test
     void shouldUpdateProfileSuccessfully() throws Exception {
@@ -134,10 +171,10 @@ class UserControllerTest {
         updatedProfile.setEmail("newtest@example.com");
         updatedProfile.setFullName("New Test User");
 
-        when(userService.getCurrentUser("testuser")).thenReturn(user);
-        when(userService.updateUser(1L, updateProfileRequestDTO)).thenReturn(updatedProfile);
+        when(userService.updateUser(1L, updateProfileRequestDTO, "*")).thenReturn(updatedProfile);
 
         mockMvc.perform(put("/api/v1/users/1")
+                        .header("If-Match", "*")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"email\":\"newtest@example.com\",\"fullName\":\"New Test User\"}"))
                 .andExpect(status().isOk())
@@ -149,10 +186,10 @@ class UserControllerTest {
 
     @Test
     void shouldReturnNotFoundWhenUserNotFoundDuringUpdate() throws Exception {
-        when(userService.getCurrentUser("testuser")).thenReturn(user);
-        when(userService.updateUser(1L, updateProfileRequestDTO)).thenThrow(new ResourceNotFoundException("User not found with id: 1"));
+        when(userService.updateUser(1L, updateProfileRequestDTO, "*")).thenThrow(new ResourceNotFoundException("User not found with id: 1"));
 
         mockMvc.perform(put("/api/v1/users/1")
+                        .header("If-Match", "*")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"email\":\"newtest@example.com\",\"fullName\":\"New Test User\"}"))
                 .andExpect(status().isNotFound())
@@ -161,19 +198,46 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.message").value("User not found with id: 1"));
     }
 
+    @Test
+    void shouldReturnConflictWhenProfileVersionChanged() throws Exception {
+        when(userService.updateUser(1L, updateProfileRequestDTO, "\"u1-4\""))
+                .thenThrow(new ConflictException("Profile was modified concurrently"));
+
+        mockMvc.perform(put("/api/v1/users/1")
+                        .header("If-Match", "\"u1-4\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"newtest@example.com\",\"fullName\":\"New Test User\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value(409))
+                .andExpect(jsonPath("$.message").value("Profile was modified concurrently"));
+    }
+
+    @Test
+    void shouldReturnPreconditionRequiredWithoutIfMatch() throws Exception {
+        when(userService.updateUser(1L, updateProfileRequestDTO, null))
+                .thenThrow(new PreconditionRequiredException("If-Match header is required"));
+
+        mockMvc.perform(put("/api/v1/users/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"newtest@example.com\",\"fullName\":\"New Test User\"}"))
+                .andExpect(status().isPreconditionRequired())
+                .andExpect(jsonPath("$.status").value(428))
+                .andExpect(jsonPath("$.message").value("If-Match header is required"));
+    }
+
     // Тесты для deleteUser
     @Test
     void shouldDeleteUserSuccessfully() throws Exception {
-        when(userService.getCurrentUser("testuser")).thenReturn(user);
 
         mockMvc.perform(delete("/api/v1/users/1")
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isNoContent());
+                .andExpect(status().isAccepted());
+
+        verify(userService).deleteUser(1L);
     }
 
     @Test
     void shouldReturnNotFoundWhenUserNotFoundDuringDelete() throws Exception {
-        when(userService.getCurrentUser("testuser")).thenReturn(user);
         doThrow(new ResourceNotFoundException("User not found with id: 1")).when(userService).deleteUser(1L);
 
         mockMvc.perform(delete("/api/v1/users/1")
@@ -188,28 +252,69 @@ class UserControllerTest {
     @Test
     void shouldGetAllUsersSuccessfully() throws Exception {
         List<ProfileResponseDTO> users = Collections.singletonList(profileResponseDTO);
-        when(userService.getAllUsers(10, 0)).thenReturn(users);
+        when(userService.getAllUsers(null, 10)).thenReturn(new CursorPageDTO<>(users, "MQ", true));
 
         mockMvc.perform(get("/api/v1/users")
                         .param("limit", "10")
-                        .param("offset", "0")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].id").value(1L))
-                .andExpect(jsonPath("$[0].username").value("testuser"))
-                .andExpect(jsonPath("$[0].email").value("test@example.com"))
-                .andExpect(jsonPath("$[0].fullName").value("Test User"));
+                .andExpect(jsonPath("$.items[0].id").value(1L))
+                .andExpect(jsonPath("$.items[0].username").value("testuser"))
+                .andExpect(jsonPath("$.items[0].email").value("test@example.com"))
+                .andExpect(jsonPath("$.items[0].fullName").value("Test User"))
+                .andExpect(jsonPath("$.nextCursor").value("MQ"))
+                .andExpect(jsonPath("$.hasNext").value(true));
+    }
+
+    @Test
+    void shouldPassCursorToNextUsersPage() throws Exception {
+        when(userService.getAllUsers("MQ", 10)).thenReturn(new CursorPageDTO<>(List.of(), null, false));
+
+        mockMvc.perform(get("/api/v1/users")
+                        .param("after", "MQ")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty())
+                .andExpect(jsonPath("$.hasNext").value(false));
     }
 
     @Test
     void shouldReturnBadRequestWhenInvalidPagination() throws Exception {
+        when(userService.getAllUsers(null, 0))
+                .thenThrow(new IllegalArgumentException("Limit must be between 1 and 100"));
+
         mockMvc.perform(get("/api/v1/users")
                         .param("limit", "0")
-                        .param("offset", "0")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.status").value(400))
                 .andExpect(jsonPath("$.error").value("Bad Request"))
-                .andExpect(jsonPath("$.message").value("Limit must be greater than 0 and offset must be non-negative"));
+                .andExpect(jsonPath("$.message").value("Limit must be between 1 and 100"));
+    }
+
+    // Тесты для searchUsers
+    @Test
+    void shouldSearchUsersSuccessfully() throws Exception {
+        when(userService.searchUsers("test", 20)).thenReturn(List.of(profileResponseDTO));
+
+        mockMvc.perform(get("/api/v1/users/search")
+                        .param("q", "test")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1L))
+                .andExpect(jsonPath("$[0].username").value("testuser"))
+                .andExpect(jsonPath("$[0].email").value("test@example.com"));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenSearchQueryTooShort() throws Exception {
+        when(userService.searchUsers("t", 20))
+                .thenThrow(new IllegalArgumentException("Query must be between 2 and 100 characters"));
+
+        mockMvc.perform(get("/api/v1/users/search")
+                        .param("q", "t")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Query must be between 2 and 100 characters"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+package com.example.habits.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardDirectoryTest {
+
+    private static final long SHARD_1_USER_ID = ShardDirectory.FIRST_SHARDED_ID + 1;
+
+    private HikariDataSource shard0;
+    private HikariDataSource shard1;
+    private ShardRoutingDataSource routingDataSource;
+    private ShardDirectory shardDirectory;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        shard0 = h2("shard0");
+        shard1 = h2("shard1");
+        routingDataSource = new ShardRoutingDataSource(shard0, List.of(shard1));
+        shardDirectory = new ShardDirectory(Optional.of(routingDataSource), 100, Duration.ofMinutes(10));
+        jdbcTemplate = new JdbcTemplate(routingDataSource);
+
+        shardDirectory.forEachShard(() -> jdbcTemplate.execute(
+                "CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(255) NOT NULL)"));
+        ShardContext.run(0, () -> jdbcTemplate.execute("CREATE TABLE email_directory (" +
+                "email VARCHAR(100) PRIMARY KEY, username VARCHAR(50) NOT NULL, shard INTEGER NOT NULL)"));
+        ShardContext.run(0, () -> jdbcTemplate.update("INSERT INTO users VALUES (42, 'legacy')"));
+        ShardContext.run(1, () -> jdbcTemplate.update("INSERT INTO users VALUES (?, 'alice')", SHARD_1_USER_ID));
+    }
+
+    @AfterEach
+    void tearDown() {
+        shard0.close();
+        routingDataSource.close();
+    }
+
+    // Тесты для маршрутизации
+    @Test
+    void shouldRouteToShardInContext() {
+        assertThat(ShardContext.call(1, () -> jdbcTemplate.queryForObject("SELECT username FROM users", String.class)))
+                .isEqualTo("alice");
+        assertThat(jdbcTemplate.queryForObject("SELECT username FROM users", String.class)).isEqualTo("legacy");
+    }
+
+    @Test
+    void shouldRejectUnknownShard() {
+        ShardContext.set(2);
+        try {
+            assertThatThrownBy(() -> routingDataSource.getConnection()).isInstanceOf(IllegalStateException.class);
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    @Test
+    void shouldScatterOverAllShards() {
+        List<Integer> counts = shardDirectory.scatter(
+                () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+
+        assertThat(shardDirectory.shardCount()).isEqualTo(2);
+        assertThat(counts).containsExactly(1, 1);
+    }
+
+    // Тесты для поиска шарда пользователя
+    @Test
+    void shouldFindShardOfUsername() {
+        assertThat(shardDirectory.shardOfUsername("alice")).isEqualTo(1);
+        assertThat(shardDirectory.shardOfUsername("legacy")).isEqualTo(0);
+        assertThat(shardDirectory.shardOfUsername("nobody")).isEqualTo(shardDirectory.homeShardOf("nobody"));
+    }
+
+    @Test
+    void shouldFindShardOfUserId() {
+        assertThat(shardDirectory.shardOfUser(42L)).isEqualTo(OptionalInt.of(0));
+        assertThat(shardDirectory.shardOfUser(SHARD_1_USER_ID)).isEqualTo(OptionalInt.of(1));
+        assertThat(shardDirectory.shardOfUser(ShardDirectory.FIRST_SHARDED_ID + 5)).isEmpty();
+    }
+
+    // Тесты для каталога email
+    @Test
+    void shouldClaimEmailForOneUserOnly() {
+        assertThat(shardDirectory.claimEmail("alice@example.com", "alice", 1)).isTrue();
+        assertThat(shardDirectory.claimEmail("alice@example.com", "bob", 0)).isFalse();
+        assertThat(shardDirectory.claimEmail("alice@example.com", "alice", 1)).isTrue();
+    }
+
+    @Test
+    void shouldReleaseClaimsOfUser() {
+        shardDirectory.claimEmail("old@example.com", "alice", 1);
+        shardDirectory.claimEmail("new@example.com", "alice", 1);
+
+        shardDirectory.releaseEmailsExcept("alice", "new@example.com");
+        shardDirectory.releaseEmail("new@example.com", "bob");
+
+        assertThat(shardDirectory.claimEmail("old@example.com", "bob", 0)).isTrue();
+        assertThat(shardDirectory.claimEmail("new@example.com", "bob", 0)).isFalse();
+        shardDirectory.releaseEmail("new@example.com", "alice");
+        assertThat(shardDirectory.claimEmail("new@example.com", "bob", 0)).isTrue();
+    }
+
+    private static HikariDataSource h2(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name);
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        return dataSource;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.habits.job;
+
+import com.example.habits.datasource.ShardDirectory;
+import com.example.habits.domain.PurgePhase;
+import com.example.habits.repository.AccountPurgeRepository;
+import com.example.habits.repository.projection.AccountPurgeState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountPurgeJobTest {
+
+    @Mock
+    private AccountPurgeRepository purgeRepository;
+
+    @Spy
+    private ShardDirectory shardDirectory = new ShardDirectory(Optional.empty(), 100, Duration.ofMinutes(10));
+
+    @InjectMocks
+    private AccountPurgeJob purgeJob;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(purgeJob, "chunkSize", 100);
+        ReflectionTestUtils.setField(purgeJob, "maxChunks", 20);
+        ReflectionTestUtils.setField(purgeJob, "maxAccounts", 10);
+    }
+
+    @Test
+    void shouldPurgeAllPhasesInChunksAndFinish() {
+        when(purgeRepository.findPending(10)).thenReturn(List.of(new AccountPurgeState(5L, PurgePhase.PROGRESS, 0)));
+        when(purgeRepository.purgeChunk(eq(5L), any(), eq(100))).thenReturn(0);
+        when(purgeRepository.purgeChunk(5L, PurgePhase.PROGRESS, 100)).thenReturn(100, 100, 40);
+        when(purgeRepository.purgeChunk(5L, PurgePhase.USER, 100)).thenReturn(1);
+
+        purgeJob.purgeDeletedAccounts();
+
+        InOrder inOrder = inOrder(purgeRepository);
+        inOrder.verify(purgeRepository, times(3)).purgeChunk(5L, PurgePhase.PROGRESS, 100);
+        inOrder.verify(purgeRepository).advance(5L, PurgePhase.ARCHIVE);
+        inOrder.verify(purgeRepository).purgeChunk(5L, PurgePhase.HABITS, 100);
+        inOrder.verify(purgeRepository).purgeChunk(5L, PurgePhase.USER, 100);
+        inOrder.verify(purgeRepository).advance(5L, PurgePhase.DONE);
+    }
+
+    @Test
+    void shouldStopAtChunkBudgetAndResumeFromStoredPhase() {
+        ReflectionTestUtils.setField(purgeJob, "maxChunks", 2);
+        when(purgeRepository.findPending(10)).thenReturn(List.of(
+                new AccountPurgeState(5L, PurgePhase.HABITS, 500),
+                new AccountPurgeState(6L, PurgePhase.PROGRESS, 0)));
+        when(purgeRepository.purgeChunk(5L, PurgePhase.HABITS, 100)).thenReturn(100);
+
+        purgeJob.purgeDeletedAccounts();
+
+        verify(purgeRepository, times(2)).purgeChunk(5L, PurgePhase.HABITS, 100);
+        verify(purgeRepository, never()).advance(anyLong(), any());
+        verify(purgeRepository, never()).purgeChunk(eq(6L), any(), anyInt());
+    }
+
+    @Test
+    void shouldContinueWithNextAccountWhenOneFails() {
+        when(purgeRepository.findPending(10)).thenReturn(List.of(
+                new AccountPurgeState(5L, PurgePhase.TOKENS, 0),
+                new AccountPurgeState(6L, PurgePhase.USER, 0)));
+        when(purgeRepository.purgeChunk(5L, PurgePhase.TOKENS, 100)).thenThrow(new RuntimeException("boom"));
+        when(purgeRepository.purgeChunk(6L, PurgePhase.USER, 100)).thenReturn(1);
+
+        purgeJob.purgeDeletedAccounts();
+
+        verify(purgeRepository).advance(6L, PurgePhase.DONE);
+        verify(purgeRepository, never()).advance(eq(5L), any());
+    }
+}
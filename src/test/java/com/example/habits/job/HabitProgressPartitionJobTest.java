@@ -0,0 +1,79 @@
+package com.example.habits.job;
+
+import com.example.habits.datasource.ShardDirectory;
+import com.example.habits.repository.HabitProgressPartitionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HabitProgressPartitionJobTest {
+
+    @Mock
+    private HabitProgressPartitionRepository partitionRepository;
+
+    @Spy
+    private ShardDirectory shardDirectory = new ShardDirectory(Optional.empty(), 100, Duration.ofMinutes(10));
+
+    @InjectMocks
+    private HabitProgressPartitionJob partitionJob;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(partitionJob, "monthsAhead", 2);
+    }
+
+    @Test
+    void shouldCreateCurrentAndFuturePartitionsAndKeepHistoryByDefault() {
+        YearMonth current = YearMonth.now();
+
+        partitionJob.maintainPartitions();
+
+        verify(partitionRepository).createPartition(current);
+        verify(partitionRepository).createPartition(current.plusMonths(1));
+        verify(partitionRepository).createPartition(current.plusMonths(2));
+        verify(partitionRepository, never()).findPartitionMonths();
+        verify(partitionRepository, never()).detachPartition(any());
+    }
+
+    @Test
+    void shouldDetachPartitionsPastRetention() {
+        YearMonth current = YearMonth.now();
+        ReflectionTestUtils.setField(partitionJob, "retentionMonths", 12);
+        when(partitionRepository.findPartitionMonths()).thenReturn(List.of(
+                current.minusMonths(14), current.minusMonths(13), current.minusMonths(12), current));
+
+        partitionJob.maintainPartitions();
+
+        verify(partitionRepository).detachPartition(current.minusMonths(14));
+        verify(partitionRepository).detachPartition(current.minusMonths(13));
+        verify(partitionRepository, never()).detachPartition(current.minusMonths(12));
+        verify(partitionRepository, never()).dropPartition(any());
+    }
+
+    @Test
+    void shouldDropExpiredPartitionsWhenConfigured() {
+        YearMonth current = YearMonth.now();
+        ReflectionTestUtils.setField(partitionJob, "retentionMonths", 1);
+        ReflectionTestUtils.setField(partitionJob, "dropExpired", true);
+        when(partitionRepository.findPartitionMonths()).thenReturn(List.of(current.minusMonths(2)));
+
+        partitionJob.maintainPartitions();
+
+        verify(partitionRepository).dropPartition(current.minusMonths(2));
+        verify(partitionRepository, never()).detachPartition(any());
+    }
+}
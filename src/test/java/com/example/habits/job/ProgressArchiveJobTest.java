@@ -0,0 +1,95 @@
+package com.example.habits.job;
+
+import com.example.habits.datasource.ShardDirectory;
+import com.example.habits.repository.HabitProgressArchiveRepository;
+import com.example.habits.repository.HabitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProgressArchiveJobTest {
+
+    @Mock
+    private HabitRepository habitRepository;
+
+    @Mock
+    private HabitProgressArchiveRepository archiveRepository;
+
+    @Spy
+    private ShardDirectory shardDirectory = new ShardDirectory(Optional.empty(), 100, Duration.ofMinutes(10));
+
+    @InjectMocks
+    private ProgressArchiveJob archiveJob;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(archiveJob, "enabled", true);
+        ReflectionTestUtils.setField(archiveJob, "afterMonths", 12);
+        ReflectionTestUtils.setField(archiveJob, "batchSize", 2);
+        ReflectionTestUtils.setField(archiveJob, "batchRows", 500);
+    }
+
+    @Test
+    void shouldArchiveProgressInHabitBatches() {
+        LocalDate before = LocalDate.now().withDayOfMonth(1).minusMonths(12);
+        when(habitRepository.findIdsAfter(0L, PageRequest.of(0, 2))).thenReturn(List.of(1L, 3L));
+        when(habitRepository.findIdsAfter(3L, PageRequest.of(0, 2))).thenReturn(List.of(7L));
+
+        archiveJob.archiveOldProgress();
+
+        verify(archiveRepository).archiveProgressBefore(1L, 3L, before, 500);
+        verify(archiveRepository).archiveProgressBefore(7L, 7L, before, 500);
+        verify(habitRepository, times(2)).findIdsAfter(anyLong(), any());
+    }
+
+    @Test
+    void shouldRepeatRangeUntilFewerRowsThanBatchAreMoved() {
+        LocalDate before = LocalDate.now().withDayOfMonth(1).minusMonths(12);
+        when(habitRepository.findIdsAfter(0L, PageRequest.of(0, 2))).thenReturn(List.of(1L));
+        when(archiveRepository.archiveProgressBefore(1L, 1L, before, 500)).thenReturn(500L, 500L, 120L);
+
+        archiveJob.archiveOldProgress();
+
+        verify(archiveRepository, times(3)).archiveProgressBefore(1L, 1L, before, 500);
+    }
+
+    @Test
+    void shouldContinueWithNextBatchWhenOneFails() {
+        LocalDate before = LocalDate.now().withDayOfMonth(1).minusMonths(12);
+        when(habitRepository.findIdsAfter(0L, PageRequest.of(0, 2))).thenReturn(List.of(1L, 2L));
+        when(habitRepository.findIdsAfter(2L, PageRequest.of(0, 2))).thenReturn(List.of());
+        when(archiveRepository.archiveProgressBefore(1L, 2L, before, 500)).thenThrow(new RuntimeException("boom"));
+
+        archiveJob.archiveOldProgress();
+
+        verify(habitRepository).findIdsAfter(2L, PageRequest.of(0, 2));
+    }
+
+    @Test
+    void shouldNotArchiveWhenDisabledOrRetentionTooShort() {
+        ReflectionTestUtils.setField(archiveJob, "enabled", false);
+        archiveJob.archiveOldProgress();
+
+        ReflectionTestUtils.setField(archiveJob, "enabled", true);
+        ReflectionTestUtils.setField(archiveJob, "afterMonths", 1);
+        archiveJob.archiveOldProgress();
+
+        verifyNoInteractions(habitRepository, archiveRepository);
+    }
+}
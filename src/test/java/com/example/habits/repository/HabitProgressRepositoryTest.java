@@ -3,11 +3,19 @@ package com.example.habits.repository;
 
 import com.example.habits.domain.Habit;
 import com.example.habits.domain.HabitProgress;
+import com.example.habits.domain.HabitProgressArchive;
 import com.example.habits.domain.User;
+import com.example.habits.dto.habit.HabitProgressResponseDTO;
+import com.example.habits.repository.projection.DailyProgressTotal;
+import com.example.habits.repository.projection.ProgressEntry;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.TestPropertySource;
 
 import java.time.LocalDate;
@@ -29,6 +37,12 @@ public class HabitProgressRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private HabitProgressArchiveRepository archiveRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
     private Habit habit;
     private HabitProgress progress;
 
@@ -67,6 +81,19 @@ public class HabitProgressRepositoryTest {
         assertThat(progressList.get(0).getCompletedAmount()).isEqualTo(1);
     }
 
+    @Test
+    void shouldMapProgressWithoutLoadingHabit() {
+        entityManager.flush();
+        entityManager.clear();
+
+        List<HabitProgress> progressList = habitProgressRepository.findByHabitIdAndDateBetween(
+                habit.getId(), LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+        HabitProgressResponseDTO dto = HabitProgressResponseDTO.fromEntity(progressList.get(0));
+
+        assertThat(dto.getHabitId()).isEqualTo(habit.getId());
+        assertThat(Hibernate.isInitialized(progressList.get(0).getHabit())).isFalse();
+    }
+
     @Test
     void shouldNotFindHabitProgressForNonExistentHabit() {
         LocalDate startDate = LocalDate.of(2025, 3, 13);
@@ -105,4 +132,79 @@ public class HabitProgressRepositoryTest {
         habitProgressRepository.deleteById(progress.getId());
         assertThat(habitProgressRepository.findById(progress.getId())).isNotPresent();
     }
+
+    @Test
+    void shouldAggregateDailyTotalsInDateOrder() {
+        HabitProgress sameDay = new HabitProgress();
+        sameDay.setHabit(habit);
+        sameDay.setDate(LocalDate.of(2025, 3, 14));
+        sameDay.setCompletedAmount(2);
+        habitProgressRepository.save(sameDay);
+
+        HabitProgress earlier = new HabitProgress();
+        earlier.setHabit(habit);
+        earlier.setDate(LocalDate.of(2025, 3, 10));
+        earlier.setCompletedAmount(4);
+        habitProgressRepository.save(earlier);
+
+        List<DailyProgressTotal> totals = habitProgressRepository.findAllDailyTotals(habit.getId());
+
+        assertThat(totals).hasSize(2);
+        assertThat(totals.get(0).date()).isEqualTo(LocalDate.of(2025, 3, 10));
+        assertThat(totals.get(0).completedAmount()).isEqualTo(4);
+        assertThat(totals.get(1).date()).isEqualTo(LocalDate.of(2025, 3, 14));
+        assertThat(totals.get(1).completedAmount()).isEqualTo(3);
+        assertThat(totals.get(1).entries()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldMergeArchivedMonthsIntoDailyTotals() {
+        archiveRepository.save(archivedMonth(LocalDate.of(2025, 2, 1), 10, 5, 2));
+        archiveRepository.save(archivedMonth(LocalDate.of(2025, 3, 1), 14, 2, 1));
+        archiveRepository.save(archivedMonth(LocalDate.of(2024, 12, 1), 1, 7, 1));
+
+        List<DailyProgressTotal> totals = habitProgressRepository.findDailyTotals(habit.getId(),
+                LocalDate.of(2025, 2, 5), LocalDate.of(2025, 3, 31));
+
+        assertThat(totals).containsExactly(
+                new DailyProgressTotal(LocalDate.of(2025, 2, 10), 5, 2),
+                new DailyProgressTotal(LocalDate.of(2025, 3, 14), 3, 2));
+        assertThat(habitProgressRepository.findAllDailyTotals(habit.getId())).hasSize(3);
+    }
+
+    @Test
+    void shouldPageEntriesByKeysetInDescendingOrder() {
+        HabitProgress sameDay = new HabitProgress();
+        sameDay.setHabit(habit);
+        sameDay.setDate(LocalDate.of(2025, 3, 14));
+        sameDay.setCompletedAmount(2);
+        habitProgressRepository.save(sameDay);
+
+        HabitProgress earlier = new HabitProgress();
+        earlier.setHabit(habit);
+        earlier.setDate(LocalDate.of(2025, 3, 10));
+        earlier.setCompletedAmount(4);
+        habitProgressRepository.save(earlier);
+
+        Slice<ProgressEntry> first = habitProgressRepository.findLatestEntries(habit.getId(), PageRequest.ofSize(2));
+        ProgressEntry last = first.getContent().get(1);
+        Slice<ProgressEntry> second = habitProgressRepository.findEntriesBefore(habit.getId(), last.date(), last.id(),
+                PageRequest.ofSize(2));
+
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.getContent()).extracting(ProgressEntry::id).containsExactly(sameDay.getId(), progress.getId());
+        assertThat(second.hasNext()).isFalse();
+        assertThat(second.getContent()).extracting(ProgressEntry::id).containsExactly(earlier.getId());
+    }
+
+    private HabitProgressArchive archivedMonth(LocalDate month, int day, int amount, int entries) {
+        HabitProgressArchive archive = new HabitProgressArchive();
+        archive.setHabitId(habit.getId());
+        archive.setMonth(month);
+        archive.setDayAmounts(new int[HabitProgressArchive.DAYS]);
+        archive.setDayEntries(new int[HabitProgressArchive.DAYS]);
+        archive.getDayAmounts()[day - 1] = amount;
+        archive.getDayEntries()[day - 1] = entries;
+        return archive;
+    }
 }
@@ -1,13 +1,22 @@
 package com.example.habits.repository;
 
 import com.example.habits.domain.Habit;
+import com.example.habits.domain.HabitProgress;
 import com.example.habits.domain.User;
+import com.example.habits.dto.habit.HabitResponseDTO;
+import com.example.habits.repository.projection.HabitProgressSummary;
+import com.example.habits.repository.projection.HabitView;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.TestPropertySource;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import static com.example.habits.domain.Frequency.DAILY;
@@ -23,6 +32,12 @@ public class HabitRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private HabitProgressRepository habitProgressRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
     private User user;
     private Habit habit;
 
@@ -51,6 +66,18 @@ public class HabitRepositoryTest {
         assertThat(habits.get(0).getUser().getId()).isEqualTo(user.getId());
     }
 
+    @Test
+    void shouldMapHabitWithoutLoadingOwner() {
+        entityManager.flush();
+        entityManager.clear();
+
+        Habit found = habitRepository.findById(habit.getId()).orElseThrow();
+        HabitResponseDTO dto = HabitResponseDTO.fromEntity(found);
+
+        assertThat(dto.getUserId()).isEqualTo(user.getId());
+        assertThat(Hibernate.isInitialized(found.getUser())).isFalse();
+    }
+
     @Test
     void shouldNotFindHabitsForNonExistentUser() {
         List<Habit> habits = habitRepository.findByUserId(999L);
@@ -77,4 +104,75 @@ public class HabitRepositoryTest {
         assertThat(habitRepository.findById(habit.getId())).isNotPresent();
     }
 
+    @Test
+    void shouldSummarizeProgressForAllUserHabitsInRange() {
+        Habit idleHabit = new Habit();
+        idleHabit.setUser(user);
+        idleHabit.setName("Evening Yoga");
+        idleHabit.setFrequency(DAILY);
+        idleHabit.setTargetAmount(1);
+        habitRepository.save(idleHabit);
+
+        saveProgress(habit, LocalDate.of(2025, 3, 14), 2);
+        saveProgress(habit, LocalDate.of(2025, 3, 15), 3);
+        saveProgress(habit, LocalDate.of(2025, 1, 1), 10);
+
+        List<HabitProgressSummary> summaries = habitRepository.summarizeProgressByUserId(
+                user.getId(), LocalDate.of(2025, 3, 8), LocalDate.of(2025, 3, 15));
+
+        assertThat(summaries).hasSize(2);
+        assertThat(summaries.get(0).habitId()).isEqualTo(habit.getId());
+        assertThat(summaries.get(0).entries()).isEqualTo(2);
+        assertThat(summaries.get(0).totalCompleted()).isEqualTo(5);
+        assertThat(summaries.get(0).targetAmount()).isEqualTo(3);
+        assertThat(summaries.get(1).habitId()).isEqualTo(idleHabit.getId());
+        assertThat(summaries.get(1).entries()).isZero();
+        assertThat(summaries.get(1).totalCompleted()).isZero();
+    }
+
+    @Test
+    void shouldNotSummarizeHabitsOfOtherUsers() {
+        List<HabitProgressSummary> summaries = habitRepository.summarizeProgressByUserId(
+                user.getId() + 1, LocalDate.of(2025, 3, 8), LocalDate.of(2025, 3, 15));
+        assertThat(summaries).isEmpty();
+    }
+
+    @Test
+    void shouldPageHabitViewsOfUserInIdOrder() {
+        Habit second = new Habit();
+        second.setUser(user);
+        second.setName("Evening Yoga");
+        second.setFrequency(DAILY);
+        second.setTargetAmount(1);
+        habitRepository.save(second);
+
+        Slice<HabitView> first = habitRepository.findViewsByUserId(user.getId(), PageRequest.ofSize(1));
+        Slice<HabitView> next = habitRepository.findViewsByUserIdAfter(user.getId(),
+                first.getContent().get(0).id(), PageRequest.ofSize(1));
+
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.getContent()).extracting(HabitView::name).containsExactly("Morning Run km");
+        assertThat(first.getContent().get(0).userId()).isEqualTo(user.getId());
+        assertThat(next.hasNext()).isFalse();
+        assertThat(next.getContent()).extracting(HabitView::id).containsExactly(second.getId());
+        assertThat(habitRepository.findViewsByUserId(999L, PageRequest.ofSize(1))).isEmpty();
+    }
+
+    @Test
+    void shouldFindHabitViewById() {
+        HabitView view = habitRepository.findViewById(habit.getId()).orElseThrow();
+
+        assertThat(view.name()).isEqualTo("Morning Run km");
+        assertThat(view.targetAmount()).isEqualTo(3);
+        assertThat(view.userId()).isEqualTo(user.getId());
+        assertThat(habitRepository.findViewById(999L)).isNotPresent();
+    }
+
+    private void saveProgress(Habit habit, LocalDate date, int amount) {
+        HabitProgress progress = new HabitProgress();
+        progress.setHabit(habit);
+        progress.setDate(date);
+        progress.setCompletedAmount(amount);
+        habitProgressRepository.save(progress);
+    }
 }
@@ -0,0 +1,42 @@
+package com.example.habits.repository;
+
+import com.example.habits.domain.CompletionBitmap;
+import com.example.habits.domain.HabitYearBitmap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class HabitYearBitmapRepositoryTest {
+
+    @Autowired
+    private HabitYearBitmapRepository bitmapRepository;
+
+    @BeforeEach
+    void setUp() {
+        HabitYearBitmap bitmap = new HabitYearBitmap();
+        bitmap.setHabitId(1L);
+        bitmap.setYear(2025);
+        bitmap.setData(CompletionBitmap.empty().withDay(10, 4, true).encode());
+        bitmapRepository.save(bitmap);
+    }
+
+    @Test
+    void shouldFindBitmapByHabitIdAndYear() {
+        Optional<HabitYearBitmap> found = bitmapRepository.findByHabitIdAndYear(1L, 2025);
+        assertThat(found).isPresent();
+        assertThat(CompletionBitmap.decode(found.get().getData()).amount(10)).isEqualTo(4);
+    }
+
+    @Test
+    void shouldNotFindBitmapForOtherYear() {
+        assertThat(bitmapRepository.findByHabitIdAndYear(1L, 2024)).isNotPresent();
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.habits.repository;
+
+import com.example.habits.datasource.ShardDirectory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Calls each repository query against a migrated and seeded Postgres, records the SQL and parameters it sends
+ * and runs {@code EXPLAIN (FORMAT JSON)} for them with the same parameters. Fails when a table holding more
+ * than {@link #SEQ_SCAN_ROW_LIMIT} rows is read with a sequential scan or an expected index is no longer
+ * used. Empty partitions may be scanned sequentially. Skipped when Docker is not available.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({QueryPlanTest.RecordingConfig.class, HabitExportRepository.class, UserSearchRepository.class,
+        ShardDirectory.class})
+public class QueryPlanTest {
+
+    private static final long SEQ_SCAN_ROW_LIMIT = 1000;
+
+    private static final long USER_ID = 42;
+    private static final long HABIT_ID = 42;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final StatementRecorder recorder = new StatementRecorder();
+
+    private static PostgreSQLContainer<?> postgres;
+    private static Connection connection;
+
+    @Autowired
+    private HabitRepository habitRepository;
+
+    @Autowired
+    private HabitProgressRepository habitProgressRepository;
+
+    @Autowired
+    private HabitYearBitmapRepository bitmapRepository;
+
+    @Autowired
+    private HabitExportRepository exportRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSearchRepository userSearchRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @BeforeAll
+    static void startDatabase() throws SQLException {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Docker is not available");
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .placeholders(Map.of("shard_id", "0"))
+                .load()
+                .migrate();
+        connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        seed();
+    }
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl());
+        registry.add("spring.datasource.username", () -> postgres.getUsername());
+        registry.add("spring.datasource.password", () -> postgres.getPassword());
+    }
+
+    @AfterAll
+    static void stopDatabase() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    private static void seed() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT create_habit_progress_partition(CAST(m AS date)) " +
+                    "FROM generate_series(date_trunc('month', CURRENT_DATE - 120), date_trunc('month', CURRENT_DATE), " +
+                    "INTERVAL '1 month') AS m");
+            statement.execute("INSERT INTO users (id, username, email, password, full_name) " +
+                    "SELECT g, 'user' || g, 'user' || g || '@example.com', 'secret', 'User ' || g " +
+                    "FROM generate_series(1, 2000) AS g");
+            statement.execute("INSERT INTO habits (id, name, frequency, target_amount, user_id) " +
+                    "SELECT g, 'Habit ' || g, 'DAILY', 1, g % 2000 + 1 FROM generate_series(1, 10000) AS g");
+            statement.execute("INSERT INTO habit_progress (date, completed_amount, habit_id) " +
+                    "SELECT CURRENT_DATE - d, 1, h FROM generate_series(1, 10000) AS h, generate_series(0, 119) AS d");
+            statement.execute("INSERT INTO refresh_tokens (token, user_id, expiry_time) " +
+                    "SELECT 'token' || g, g % 2000 + 1, now() FROM generate_series(1, 4000) AS g");
+            statement.execute("INSERT INTO habit_year_bitmaps (habit_id, bitmap_year, data) " +
+                    "SELECT h, 2025, '\\x00'::bytea FROM generate_series(1, 10000) AS h");
+            statement.execute("ANALYZE");
+        }
+    }
+
+    // Тесты для HabitRepository
+    @Test
+    void findByUserIdUsesUserIndex() throws Exception {
+        assertPlans(() -> habitRepository.findByUserId(USER_ID), "idx_habits_user_keyset");
+    }
+
+    @Test
+    void findViewsByUserIdAfterUsesKeysetIndex() throws Exception {
+        assertPlans(() -> habitRepository.findViewsByUserIdAfter(USER_ID, 100L, PageRequest.ofSize(50)),
+                "idx_habits_user_keyset");
+    }
+
+    @Test
+    void findIdsAfterUsesPrimaryKey() throws Exception {
+        assertPlans(() -> habitRepository.findIdsAfter(5000L, PageRequest.ofSize(500)), "habits_pkey");
+    }
+
+    @Test
+    void summarizeProgressByUserIdUsesIndexes() throws Exception {
+        LocalDate today = LocalDate.now();
+        assertPlans(() -> habitRepository.summarizeProgressByUserId(USER_ID, today.minusDays(7), today),
+                "idx_habits_user_keyset");
+    }
+
+    // Тесты для HabitProgressRepository
+    @Test
+    void findByHabitIdAndDateBetweenPrunesPartitionsAndUsesIndex() throws Exception {
+        LocalDate today = LocalDate.now();
+        List<JsonNode> plans = assertPlans(
+                () -> habitProgressRepository.findByHabitIdAndDateBetween(HABIT_ID, today.minusDays(7), today));
+        assertThat(plans).hasSize(1);
+        assertThat(scannedRelations(plans.get(0))).hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void findDailyTotalsUsesIndex() throws Exception {
+        LocalDate today = LocalDate.now();
+        assertPlans(() -> habitProgressRepository.findDailyTotals(HABIT_ID, today.minusDays(30), today));
+    }
+
+    @Test
+    void findAllDailyTotalsUsesIndex() throws Exception {
+        assertPlans(() -> habitProgressRepository.findAllDailyTotals(HABIT_ID));
+    }
+
+    @Test
+    void streamSeriesUsesIndex() throws Exception {
+        LocalDate today = LocalDate.now();
+        assertPlans(() -> {
+            try (Stream<?> series = habitProgressRepository.streamSeries(HABIT_ID, today.minusDays(60), today, "week")) {
+                series.forEach(point -> {
+                });
+            }
+        });
+    }
+
+    @Test
+    void progressKeysetPageUsesIndex() throws Exception {
+        assertPlans(() -> habitProgressRepository.findEntriesBefore(HABIT_ID, LocalDate.now().minusDays(30),
+                1_000_000L, PageRequest.ofSize(50)));
+    }
+
+    // Тесты для HabitExportRepository
+    @Test
+    void streamHistoryUsesUserAndProgressIndexes() throws Exception {
+        assertPlans(() -> exportRepository.streamHistory(USER_ID, row -> {
+        }), "idx_habits_user_keyset");
+    }
+
+    // Тесты для HabitYearBitmapRepository
+    @Test
+    void findByHabitIdAndYearUsesUniqueIndex() throws Exception {
+        assertPlans(() -> bitmapRepository.findByHabitIdAndYear(HABIT_ID, 2025),
+                "habit_year_bitmaps_habit_id_bitmap_year_key");
+    }
+
+    // Тесты для UserRepository
+    @Test
+    void findByUsernameAndEmailUseUniqueIndexes() throws Exception {
+        assertPlans(() -> userRepository.findByUsername("user42"), "users_username_key");
+        assertPlans(() -> userRepository.findByEmail("user42@example.com"), "users_email_key");
+    }
+
+    @Test
+    void findProfilesAfterUsesPrimaryKey() throws Exception {
+        assertPlans(() -> userRepository.findProfilesAfter(1500L, PageRequest.ofSize(10)), "users_pkey");
+    }
+
+    @Test
+    void searchUsesTrigramIndexes() throws Exception {
+        assertPlans(() -> userSearchRepository.search("user42", 20),
+                "idx_users_username_trgm", "idx_users_email_trgm", "idx_users_full_name_trgm");
+    }
+
+    // Тесты для RefreshTokenRepository
+    @Test
+    void findByTokenUsesUniqueIndex() throws Exception {
+        assertPlans(() -> refreshTokenRepository.findByToken("token42"), "refresh_tokens_token_key");
+    }
+
+    @Test
+    void deleteByUserIdUsesUserIndex() throws Exception {
+        assertPlans(() -> refreshTokenRepository.deleteByUserId(USER_ID), "idx_refresh_tokens_user_id");
+    }
+
+    /**
+     * Runs the repository call, explains every statement it sent and checks the plans together.
+     */
+    private List<JsonNode> assertPlans(Runnable repositoryCall, String... expectedIndexes) throws Exception {
+        recorder.clear();
+        repositoryCall.run();
+        List<RecordedStatement> statements = recorder.statements();
+        assertThat(statements).as("statements sent by the repository call").isNotEmpty();
+
+        List<JsonNode> plans = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        for (RecordedStatement statement : statements) {
+            JsonNode plan = explain(statement);
+            List<String> sequentialScans = new ArrayList<>();
+            collect(plan, sequentialScans, indexes);
+            assertThat(sequentialScans).as("sequential scans in plan of %s", statement.sql())
+                    .noneMatch(relation -> estimatedRows(relation) > SEQ_SCAN_ROW_LIMIT);
+            plans.add(plan);
+        }
+        assertThat(indexes).as("indexes in plans of %s", statements).contains(expectedIndexes);
+        return plans;
+    }
+
+    private JsonNode explain(RecordedStatement recorded) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + recorded.sql())) {
+            for (Binding binding : recorded.bindings()) {
+                binding.method().invoke(statement, binding.args());
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return objectMapper.readTree(resultSet.getString(1)).get(0).get("Plan");
+            }
+        }
+    }
+
+    private static long estimatedRows(String relation) {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT reltuples FROM pg_class WHERE relname = '" + relation + "'")) {
+            return resultSet.next() ? (long) resultSet.getFloat(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void collect(JsonNode node, List<String> sequentialScans, List<String> indexes) {
+        if (node.path("Node Type").asText().equals("Seq Scan")) {
+            sequentialScans.add(node.path("Relation Name").asText());
+        }
+        if (node.has("Index Name")) {
+            indexes.add(node.get("Index Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collect(child, sequentialScans, indexes);
+        }
+    }
+
+    private static List<String> scannedRelations(JsonNode node) {
+        List<String> relations = new ArrayList<>();
+        if (node.has("Relation Name")) {
+            relations.add(node.get("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            relations.addAll(scannedRelations(child));
+        }
+        return relations;
+    }
+
+    @TestConfiguration
+    static class RecordingConfig {
+
+        @Bean
+        static BeanPostProcessor recordingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? recorder.wrap(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private record Binding(Method method, Object[] args) {
+    }
+
+    private record RecordedStatement(String sql, List<Binding> bindings) {
+
+        @Override
+        public String toString() {
+            return sql;
+        }
+    }
+
+    /**
+     * Wraps a data source so that every prepared statement executed through it is recorded with the setter
+     * calls that bound its parameters.
+     */
+    private static final class StatementRecorder {
+
+        private final List<RecordedStatement> statements = new CopyOnWriteArrayList<>();
+
+        void clear() {
+            statements.clear();
+        }
+
+        List<RecordedStatement> statements() {
+            return List.copyOf(statements);
+        }
+
+        DataSource wrap(DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (method, args, result) ->
+                    result instanceof Connection connection ? wrap(connection) : result);
+        }
+
+        private Connection wrap(Connection connection) {
+            return proxy(Connection.class, connection, (method, args, result) ->
+                    result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")
+                            ? wrap(statement, (String) args[0]) : result);
+        }
+
+        private PreparedStatement wrap(PreparedStatement statement, String sql) {
+            Map<Integer, Binding> bindings = new TreeMap<>();
+            return proxy(PreparedStatement.class, statement, (method, args, result) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    bindings.put(index, new Binding(method, args));
+                } else if (name.equals("clearParameters")) {
+                    bindings.clear();
+                } else if (name.startsWith("execute") && (args == null || args.length == 0)) {
+                    statements.add(new RecordedStatement(sql, List.copyOf(bindings.values())));
+                }
+                return result;
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, ResultHandler handler) {
+            return (T) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        Object result;
+                        try {
+                            result = method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        return handler.handle(method, args, result);
+                    });
+        }
+
+        @FunctionalInterface
+        private interface ResultHandler {
+            Object handle(Method method, Object[] args, Object result);
+        }
+    }
+}
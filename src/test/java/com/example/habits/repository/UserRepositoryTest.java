@@ -1,12 +1,25 @@
 package com.example.habits.repository;
 
 import com.example.habits.domain.User;
+import com.example.habits.repository.projection.UserProfileView;
+import com.example.habits.repository.projection.UserVersion;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -18,6 +31,12 @@ public class UserRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private User user;
 
 
@@ -66,4 +85,81 @@ public class UserRepositoryTest {
         assertThat(deletedUser).isNotPresent();
     }
 
+    @Test
+    void shouldPageProfilesAfterId() {
+        User second = new User();
+        second.setUsername("seconduser");
+        second.setEmail("second@example.com");
+        second.setPassword("password");
+        second.setFullName("Second User");
+        userRepository.save(second);
+
+        Slice<UserProfileView> first = userRepository.findProfilesAfter(0L, PageRequest.ofSize(1));
+        Slice<UserProfileView> next = userRepository.findProfilesAfter(first.getContent().get(0).id(),
+                PageRequest.ofSize(1));
+
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.getContent()).extracting(UserProfileView::username).containsExactly("testuser");
+        assertThat(next.hasNext()).isFalse();
+        assertThat(next.getContent()).extracting(UserProfileView::email).containsExactly("second@example.com");
+    }
+
+    @Test
+    void shouldFindIdByUsername() {
+        assertThat(userRepository.findIdByUsername("testuser")).contains(user.getId());
+        assertThat(userRepository.findIdByUsername("non-user")).isNotPresent();
+    }
+
+    @Test
+    void shouldIncrementHabitsVersionWithoutTouchingEntityVersion() {
+        userRepository.incrementHabitsVersion(user.getId());
+        userRepository.incrementHabitsVersion(user.getId());
+
+        UserVersion version = userRepository.findVersionById(user.getId()).orElseThrow();
+        assertThat(version.habitsVersion()).isEqualTo(2);
+        assertThat(version.version()).isZero();
+        assertThat(userRepository.findVersionById(999L)).isNotPresent();
+    }
+
+    @Test
+    void shouldHideUserMarkedDeleted() {
+        assertThat(userRepository.markDeleted(user.getId(), Instant.now())).isEqualTo(1);
+        assertThat(userRepository.markDeleted(user.getId(), Instant.now())).isZero();
+
+        assertThat(userRepository.findIdByUsername("testuser")).isNotPresent();
+        assertThat(userRepository.findVersionById(user.getId())).isNotPresent();
+        assertThat(userRepository.findProfilesAfter(0L, PageRequest.ofSize(10))).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldNotCacheOldUserReadWhileUserUpdateIsInFlight() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        entityManagerFactory.getCache().evict(User.class, user.getId());
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                userRepository.markDeleted(user.getId(), Instant.now());
+                long puts = statistics.getDomainDataRegionStatistics("users").getPutCount();
+
+                EntityManager reader = entityManagerFactory.createEntityManager();
+                try {
+                    assertThat(reader.find(User.class, user.getId()).getDeletedAt()).isNull();
+                } finally {
+                    reader.close();
+                }
+                assertThat(statistics.getDomainDataRegionStatistics("users").getPutCount()).isEqualTo(puts);
+            });
+
+            EntityManager reader = entityManagerFactory.createEntityManager();
+            try {
+                assertThat(reader.find(User.class, user.getId()).getDeletedAt()).isNotNull();
+            } finally {
+                reader.close();
+            }
+        } finally {
+            statistics.setStatisticsEnabled(false);
+            userRepository.deleteById(user.getId());
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.habits.service;
 
+import com.example.habits.datasource.ShardDirectory;
 import com.example.habits.domain.RefreshToken;
 import com.example.habits.domain.User;
 import com.example.habits.dto.auth.LoginRequestDTO;
@@ -14,12 +15,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
 import java.util.Optional;
@@ -47,6 +51,9 @@ public class AuthenticationServiceImplTest {
     @Mock
     private JwtService jwtService;
 
+    @Spy
+    private ShardDirectory shardDirectory = new ShardDirectory(Optional.empty(), 100, Duration.ofMinutes(10));
+
     @InjectMocks
     private AuthenticationServiceImpl authenticationService;
 
@@ -115,6 +122,33 @@ public class AuthenticationServiceImplTest {
         verify(userRepository, never()).save(any(User.class));
     }
 
+    @Test
+    void shouldThrowExceptionWhenEmailClaimedOnAnotherShardDuringRegistration() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.empty());
+        when(passwordEncoder.encode("password")).thenReturn("encodedPassword");
+        doReturn(false).when(shardDirectory).claimEmail("test@example.com", "testuser", 0);
+
+        assertThatThrownBy(() -> authenticationService.registerUser(registerRequest))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Email already exists");
+
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void shouldReleaseEmailClaimWhenRegistrationFails() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.empty());
+        when(passwordEncoder.encode("password")).thenReturn("encodedPassword");
+        when(userRepository.save(any(User.class))).thenThrow(new DuplicateKeyException("users_username_key"));
+
+        assertThatThrownBy(() -> authenticationService.registerUser(registerRequest))
+                .isInstanceOf(DuplicateKeyException.class);
+
+        verify(shardDirectory).releaseEmail("test@example.com", "testuser");
+    }
+
     @Test
     void shouldLoginUserSuccessfully() {
         // Given
@@ -0,0 +1,101 @@
+package com.example.habits.service;
+
+import com.example.habits.datasource.ShardContext;
+import com.example.habits.domain.HistoryFormat;
+import com.example.habits.domain.Frequency;
+import com.example.habits.dto.habit.HabitExportRequest;
+import com.example.habits.repository.HabitExportRepository;
+import com.example.habits.repository.projection.HabitExportRow;
+import com.example.habits.service.impl.ExportServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportServiceImplTest {
+
+    @Mock
+    private HabitExportRepository exportRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private ExportServiceImpl exportService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doAnswer(invocation -> {
+            Consumer<HabitExportRow> consumer = invocation.getArgument(1);
+            consumer.accept(new HabitExportRow(1L, "Morning, Run", Frequency.DAILY, 2,
+                    LocalDate.of(2025, 3, 1), 2, 1));
+            consumer.accept(new HabitExportRow(1L, "Morning, Run", Frequency.DAILY, 2,
+                    LocalDate.of(2025, 3, 2), 5, 3));
+            consumer.accept(new HabitExportRow(2L, "Reading", Frequency.WEEKLY, 1, null, null, null));
+            return null;
+        }).when(exportRepository).streamHistory(eq(1L), any());
+    }
+
+    @Test
+    void shouldResolveExportForCurrentUser() {
+        HabitExportRequest request = ShardContext.call(2, () -> exportService.prepareExport(1L, "NDJSON", true));
+
+        assertThat(request).isEqualTo(new HabitExportRequest(1L, HistoryFormat.NDJSON, true, 2));
+        assertThat(request.fileName()).isEqualTo("habits-export.ndjson.gz");
+    }
+
+    @Test
+    void shouldRejectUnknownFormat() {
+        assertThatThrownBy(() -> exportService.prepareExport(1L, "xml", false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid format: xml");
+    }
+
+    @Test
+    void shouldWriteNdjsonWithOneLinePerHabitAndDay() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.writeExport(new HabitExportRequest(1L, HistoryFormat.NDJSON, false, 0), out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "{\"type\":\"habit\",\"id\":1,\"name\":\"Morning, Run\",\"frequency\":\"DAILY\",\"targetAmount\":2}",
+                "{\"type\":\"progress\",\"habitId\":1,\"date\":\"2025-03-01\",\"completedAmount\":2,\"entries\":1}",
+                "{\"type\":\"progress\",\"habitId\":1,\"date\":\"2025-03-02\",\"completedAmount\":5,\"entries\":3}",
+                "{\"type\":\"habit\",\"id\":2,\"name\":\"Reading\",\"frequency\":\"WEEKLY\",\"targetAmount\":1}");
+    }
+
+    @Test
+    void shouldWriteGzippedCsv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.writeExport(new HabitExportRequest(1L, HistoryFormat.CSV, true, 0), out);
+
+        String csv;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertThat(csv.split("\n")).containsExactly(
+                "habit_id,habit_name,frequency,target_amount,date,completed_amount,entries",
+                "1,\"Morning, Run\",DAILY,2,2025-03-01,2,1",
+                "1,\"Morning, Run\",DAILY,2,2025-03-02,5,3",
+                "2,Reading,WEEKLY,1,,,");
+    }
+}
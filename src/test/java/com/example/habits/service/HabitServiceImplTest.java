@@ -1,5 +1,10 @@
 package com.example.habits.service;
 
+import com.example.habits.cache.HabitAnalyticsCache;
+import com.example.habits.cache.HabitOwnershipIndex;
+import com.example.habits.cache.HabitProgressHotStore;
+import com.example.habits.cache.ResourceVersionCache;
+import com.example.habits.datasource.ShardContext;
 import com.example.habits.domain.Frequency;
 import com.example.habits.domain.Habit;
 import com.example.habits.domain.HabitProgress;
@@ -9,23 +14,36 @@ import com.example.habits.dto.habit.HabitProgressRequestDTO;
 import com.example.habits.dto.habit.HabitProgressResponseDTO;
 import com.example.habits.dto.habit.HabitRequestDTO;
 import com.example.habits.dto.habit.HabitResponseDTO;
+import com.example.habits.dto.habit.HabitSeriesPointDTO;
+import com.example.habits.dto.habit.HabitSeriesRequest;
+import com.example.habits.domain.SeriesBucket;
 import com.example.habits.repository.HabitProgressRepository;
 import com.example.habits.repository.HabitRepository;
 import com.example.habits.repository.UserRepository;
+import com.example.habits.repository.projection.HabitProgressSummary;
+import com.example.habits.repository.projection.HabitSeriesPoint;
+import com.example.habits.repository.projection.HabitVersion;
+import com.example.habits.repository.projection.UserVersion;
+import com.example.habits.repository.projection.HabitView;
+import com.example.habits.repository.projection.ProgressEntry;
+import com.example.habits.dto.page.CursorPageDTO;
+import com.example.habits.util.Cursors;
 import com.example.habits.service.impl.HabitServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContext;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -46,10 +64,22 @@ class HabitServiceImplTest {
     private UserRepository userRepository;
 
     @Mock
-    private SecurityContext securityContext;
+    private StreakService streakService;
 
     @Mock
-    private Authentication authentication;
+    private HeatmapService heatmapService;
+
+    @Mock
+    private HabitProgressHotStore hotStore;
+
+    @Mock
+    private ResourceVersionCache versionCache;
+
+    @Mock
+    private HabitOwnershipIndex ownershipIndex;
+
+    @Spy
+    private HabitAnalyticsCache analyticsCache = new HabitAnalyticsCache(100);
 
     @InjectMocks
     private HabitServiceImpl habitService;
@@ -60,6 +90,7 @@ class HabitServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        lenient().doCallRealMethod().when(ownershipIndex).checkOwner(anyLong(), anyLong());
         // Настройка пользователя
         user = new User();
         user.setId(1L);
@@ -81,24 +112,20 @@ class HabitServiceImplTest {
         habitRequest.setName("Morning Run");
         habitRequest.setFrequency(Frequency.DAILY);
         habitRequest.setTargetAmount(1);
-    }
 
-    private void setupSecurityContext() {
-        SecurityContextHolder.setContext(securityContext);
-        when(securityContext.getAuthentication()).thenReturn(authentication);
-        when(authentication.getName()).thenReturn("testuser");
+        // Привычка 1 принадлежит testuser
+        lenient().when(ownershipIndex.ownerOf(1L)).thenReturn(1L);
     }
 
     // Тесты для createHabit
     @Test
     void shouldCreateHabitSuccessfully() {
         // Given
-        setupSecurityContext();
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
         when(habitRepository.save(any(Habit.class))).thenReturn(habit);
 
         // When
-        HabitResponseDTO response = habitService.createHabit(habitRequest);
+        HabitResponseDTO response = habitService.createHabit(1L, habitRequest);
 
         // Then
         assertThat(response).isNotNull();
@@ -107,27 +134,116 @@ class HabitServiceImplTest {
         assertThat(response.getTargetAmount()).isEqualTo(1);
 
         verify(habitRepository).save(any(Habit.class));
+        verify(userRepository).incrementHabitsVersion(1L);
+        verify(versionCache).invalidateUser(1L);
+        verify(ownershipIndex).put(1L, 1L);
+        verify(userRepository, never()).findByUsername(any());
     }
 
+    // Тесты для getHabits
     @Test
-    void shouldThrowExceptionWhenUserNotFoundDuringCreateHabit() {
+    void shouldListHabitsFromViewsWithCursor() {
         // Given
-        setupSecurityContext();
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
+        when(habitRepository.findViewsByUserId(1L, PageRequest.ofSize(1))).thenReturn(new SliceImpl<>(
+                List.of(view(4L, 1L)), PageRequest.ofSize(1), true));
 
-        // When & Then
-        assertThatThrownBy(() -> habitService.createHabit(habitRequest))
+        // When
+        CursorPageDTO<HabitResponseDTO> page = habitService.getHabits(1L, null, 1);
+
+        // Then
+        assertThat(page.getItems()).extracting(HabitResponseDTO::getId).containsExactly(4L);
+        assertThat(page.getItems().get(0).getUserId()).isEqualTo(1L);
+        assertThat(page.getNextCursor()).isEqualTo(Cursors.encode(4L));
+        verify(habitRepository, never()).findByUserId(anyLong());
+        verify(userRepository, never()).findByUsername(any());
+    }
+
+    @Test
+    void shouldListHabitsAfterCursor() {
+        // Given
+        when(habitRepository.findViewsByUserIdAfter(1L, 4L, PageRequest.ofSize(10))).thenReturn(new SliceImpl<>(
+                List.of(view(7L, 1L)), PageRequest.ofSize(10), false));
+
+        // When
+        CursorPageDTO<HabitResponseDTO> page = habitService.getHabits(1L, Cursors.encode(4L), 10);
+
+        // Then
+        assertThat(page.getItems()).extracting(HabitResponseDTO::getId).containsExactly(7L);
+        assertThat(page.isHasNext()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldRejectMalformedHabitCursor() {
+
+        assertThatThrownBy(() -> habitService.getHabits(1L, Cursors.encode("four"), 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> habitService.getHabits(1L, null, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Limit must be between 1 and 100");
+    }
+
+    // Тесты для getHabitsEtag и getHabitEtag
+    @Test
+    void shouldBuildHabitsEtagFromCachedCounter() {
+        when(versionCache.user(1L)).thenReturn(new UserVersion(1L, 0, 5));
+
+        assertThat(habitService.getHabitsEtag(1L)).isEqualTo("\"hl1-5-" + LocalDate.now() + "\"");
+        verifyNoInteractions(habitRepository, userRepository);
+    }
+
+    @Test
+    void shouldBuildHabitEtagFromCachedVersion() {
+        when(versionCache.habit(4L)).thenReturn(new HabitVersion(4L, 1L, 3));
+
+        assertThat(habitService.getHabitEtag(1L, 4L)).isEqualTo("\"h4-3-" + LocalDate.now() + "\"");
+        verifyNoInteractions(habitRepository);
+    }
+
+    @Test
+    void shouldRejectHabitEtagOfOtherUser() {
+        when(versionCache.habit(4L)).thenReturn(new HabitVersion(4L, 2L, 3));
+
+        assertThatThrownBy(() -> habitService.getHabitEtag(1L, 4L))
                 .isInstanceOf(RuntimeException.class)
-                .hasMessage("User not found");
+                .hasMessage("Unauthorized access to habit");
+    }
+
+    // Тесты для getHabit
+    @Test
+    void shouldGetHabitFromView() {
+        when(habitRepository.findViewById(4L)).thenReturn(Optional.of(view(4L, 1L)));
 
-        verify(habitRepository, never()).save(any(Habit.class));
+        HabitResponseDTO response = habitService.getHabit(1L, 4L);
+
+        assertThat(response.getName()).isEqualTo("Morning Run");
+        assertThat(response.getTargetAmount()).isEqualTo(1);
+        verify(habitRepository, never()).findById(any());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenHabitOfOtherUserRequested() {
+        when(habitRepository.findViewById(4L)).thenReturn(Optional.of(view(4L, 2L)));
+
+        assertThatThrownBy(() -> habitService.getHabit(1L, 4L))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Unauthorized access to habit");
+    }
+
+    @Test
+    void shouldThrowExceptionWhenHabitViewNotFound() {
+        when(habitRepository.findViewById(4L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> habitService.getHabit(1L, 4L))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Habit not found");
     }
 
     // Тесты для recordProgress
     @Test
     void shouldRecordProgressSuccessfully() {
         // Given
-        setupSecurityContext();
         HabitProgressRequestDTO progressRequest = new HabitProgressRequestDTO();
         progressRequest.setCompletedAmount(1);
 
@@ -137,11 +253,11 @@ class HabitServiceImplTest {
         progress.setDate(LocalDate.now());
         progress.setCompletedAmount(1);
 
-        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit));
+        when(habitRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(habit));
         when(habitProgressRepository.save(any(HabitProgress.class))).thenReturn(progress);
 
         // When
-        HabitProgressResponseDTO response = habitService.recordProgress(1L, progressRequest);
+        HabitProgressResponseDTO response = habitService.recordProgress(1L, 1L, progressRequest);
 
         // Then
         assertThat(response).isNotNull();
@@ -149,6 +265,12 @@ class HabitServiceImplTest {
         assertThat(response.getDate()).isEqualTo(LocalDate.now());
 
         verify(habitProgressRepository).save(any(HabitProgress.class));
+        verify(streakService).applyProgress(habit, LocalDate.now(), 1);
+        verify(habitRepository).save(habit);
+        verify(heatmapService).applyProgress(habit, LocalDate.now(), 1);
+        verify(hotStore).recordProgress(1L, LocalDate.now(), 1);
+        verify(userRepository).incrementHabitsVersion(1L);
+        verify(versionCache).invalidateHabit(1L, 1L);
     }
 
     @Test
@@ -157,38 +279,31 @@ class HabitServiceImplTest {
         HabitProgressRequestDTO progressRequest = new HabitProgressRequestDTO();
         progressRequest.setCompletedAmount(1);
 
-        when(habitRepository.findById(1L)).thenReturn(Optional.empty());
+        when(ownershipIndex.ownerOf(1L)).thenReturn(0L);
 
         // When & Then
-        assertThatThrownBy(() -> habitService.recordProgress(1L, progressRequest))
+        assertThatThrownBy(() -> habitService.recordProgress(1L, 1L, progressRequest))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("Habit not found");
 
+        verify(habitRepository, never()).findByIdForUpdate(anyLong());
         verify(habitProgressRepository, never()).save(any(HabitProgress.class));
     }
 
     @Test
     void shouldThrowExceptionWhenUserNotAuthorizedForHabitDuringRecordProgress() {
         // Given
-        setupSecurityContext();
         HabitProgressRequestDTO progressRequest = new HabitProgressRequestDTO();
         progressRequest.setCompletedAmount(1);
 
-        User differentUser = new User();
-        differentUser.setId(2L);
-        differentUser.setUsername("differentuser");
-
-        Habit habitWithDifferentUser = new Habit();
-        habitWithDifferentUser.setId(1L);
-        habitWithDifferentUser.setUser(differentUser);
-
-        when(habitRepository.findById(1L)).thenReturn(Optional.of(habitWithDifferentUser));
+        when(ownershipIndex.ownerOf(1L)).thenReturn(2L);
 
         // When & Then
-        assertThatThrownBy(() -> habitService.recordProgress(1L, progressRequest))
+        assertThatThrownBy(() -> habitService.recordProgress(1L, 1L, progressRequest))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("Unauthorized access to habit");
 
+        verify(habitRepository, never()).findByIdForUpdate(anyLong());
         verify(habitProgressRepository, never()).save(any(HabitProgress.class));
     }
 
@@ -196,7 +311,6 @@ class HabitServiceImplTest {
     @Test
     void shouldGetAnalyticsForWeekSuccessfully() {
         // Given
-        setupSecurityContext();
         LocalDate today = LocalDate.now();
         LocalDate startDate = today.minusDays(7);
 
@@ -217,7 +331,7 @@ class HabitServiceImplTest {
                 .thenReturn(progressList);
 
         // When
-        HabitAnalyticsResponseDTO response = habitService.getAnalytics(1L, "week");
+        HabitAnalyticsResponseDTO response = habitService.getAnalytics(1L, 1L, "week");
 
         // Then
         assertThat(response).isNotNull();
@@ -231,7 +345,6 @@ class HabitServiceImplTest {
     @Test
     void shouldGetAnalyticsForMonthSuccessfully() {
         // Given
-        setupSecurityContext();
         LocalDate today = LocalDate.now();
         LocalDate startDate = today.minusMonths(1);
 
@@ -247,7 +360,7 @@ class HabitServiceImplTest {
                 .thenReturn(progressList);
 
         // When
-        HabitAnalyticsResponseDTO response = habitService.getAnalytics(1L, "month");
+        HabitAnalyticsResponseDTO response = habitService.getAnalytics(1L, 1L, "month");
 
         // Then
         assertThat(response).isNotNull();
@@ -261,10 +374,10 @@ class HabitServiceImplTest {
     @Test
     void shouldThrowExceptionWhenHabitNotFoundDuringGetAnalytics() {
         // Given
-        when(habitRepository.findById(1L)).thenReturn(Optional.empty());
+        when(ownershipIndex.ownerOf(1L)).thenReturn(0L);
 
         // When & Then
-        assertThatThrownBy(() -> habitService.getAnalytics(1L, "week"))
+        assertThatThrownBy(() -> habitService.getAnalytics(1L, 1L, "week"))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("Habit not found");
 
@@ -274,29 +387,20 @@ class HabitServiceImplTest {
     @Test
     void shouldThrowExceptionWhenUserNotAuthorizedForHabitDuringGetAnalytics() {
         // Given
-        setupSecurityContext();
-        User differentUser = new User();
-        differentUser.setId(2L);
-        differentUser.setUsername("differentuser");
-
-        Habit habitWithDifferentUser = new Habit();
-        habitWithDifferentUser.setId(1L);
-        habitWithDifferentUser.setUser(differentUser);
-
-        when(habitRepository.findById(1L)).thenReturn(Optional.of(habitWithDifferentUser));
+        when(ownershipIndex.ownerOf(1L)).thenReturn(2L);
 
         // When & Then
-        assertThatThrownBy(() -> habitService.getAnalytics(1L, "week"))
+        assertThatThrownBy(() -> habitService.getAnalytics(1L, 1L, "week"))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("Unauthorized access to habit");
 
+        verify(habitRepository, never()).findById(anyLong());
         verify(habitProgressRepository, never()).findByHabitIdAndDateBetween(anyLong(), any(), any());
     }
 
     @Test
     void shouldReturnZeroCompletionPercentageWhenNoProgress() {
         // Given
-        setupSecurityContext();
         LocalDate today = LocalDate.now();
         LocalDate startDate = today.minusDays(7);
 
@@ -305,7 +409,7 @@ class HabitServiceImplTest {
                 .thenReturn(List.of());
 
         // When
-        HabitAnalyticsResponseDTO response = habitService.getAnalytics(1L, "week");
+        HabitAnalyticsResponseDTO response = habitService.getAnalytics(1L, 1L, "week");
 
         // Then
         assertThat(response).isNotNull();
@@ -313,4 +417,250 @@ class HabitServiceImplTest {
         assertThat(response.getTotalCompleted()).isEqualTo(0);
         assertThat(response.getCompletionPercentage()).isEqualTo("0.00%");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldServeRepeatedAnalyticsFromCache() {
+        // Given
+        LocalDate today = LocalDate.now();
+        LocalDate startDate = today.minusDays(7);
+
+        HabitProgress progress = new HabitProgress();
+        progress.setHabit(habit);
+        progress.setDate(today);
+        progress.setCompletedAmount(1);
+
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit));
+        when(habitProgressRepository.findByHabitIdAndDateBetween(eq(1L), eq(startDate), eq(today)))
+                .thenReturn(List.of(progress));
+
+        // When
+        HabitAnalyticsResponseDTO first = habitService.getAnalytics(1L, 1L, "week");
+        HabitAnalyticsResponseDTO second = habitService.getAnalytics(1L, 1L, "week");
+
+        // Then
+        assertThat(second).isSameAs(first);
+        verify(habitRepository, times(1)).findById(1L);
+        verify(habitProgressRepository, times(1)).findByHabitIdAndDateBetween(anyLong(), any(), any());
+    }
+
+    @Test
+    void shouldRejectCachedAnalyticsForDifferentUser() {
+        // Given
+        analyticsCache.put(1L, "week", LocalDate.now(), 2L, new HabitAnalyticsResponseDTO(),
+                analyticsCache.generation());
+
+        // When & Then
+        assertThatThrownBy(() -> habitService.getAnalytics(1L, 1L, "week"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Unauthorized access to habit");
+
+        verify(habitRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void shouldInvalidateCachedAnalyticsWhenProgressRecorded() {
+        // Given
+        LocalDate today = LocalDate.now();
+        HabitProgressRequestDTO progressRequest = new HabitProgressRequestDTO();
+        progressRequest.setCompletedAmount(1);
+
+        HabitProgress progress = new HabitProgress();
+        progress.setId(1L);
+        progress.setHabit(habit);
+        progress.setDate(today);
+        progress.setCompletedAmount(1);
+
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit));
+        when(habitRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(habit));
+        when(habitProgressRepository.findByHabitIdAndDateBetween(eq(1L), eq(today.minusDays(7)), eq(today)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(progress));
+        when(habitProgressRepository.save(any(HabitProgress.class))).thenReturn(progress);
+
+        // When
+        HabitAnalyticsResponseDTO before = habitService.getAnalytics(1L, 1L, "week");
+        habitService.recordProgress(1L, 1L, progressRequest);
+        HabitAnalyticsResponseDTO after = habitService.getAnalytics(1L, 1L, "week");
+
+        // Then
+        assertThat(before.getTotalCompleted()).isEqualTo(0);
+        assertThat(after.getTotalCompleted()).isEqualTo(1);
+        verify(analyticsCache).invalidate(1L);
+    }
+
+    @Test
+    void shouldGetAnalyticsFromHotStoreWithoutLoadingEntities() {
+        // Given
+        LocalDate today = LocalDate.now();
+
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit));
+        when(hotStore.sum(1L, today.minusDays(7), today)).thenReturn(new HabitProgressHotStore.Totals(3, 4));
+
+        // When
+        HabitAnalyticsResponseDTO response = habitService.getAnalytics(1L, 1L, "week");
+
+        // Then
+        assertThat(response.getTotalTarget()).isEqualTo(4);
+        assertThat(response.getTotalCompleted()).isEqualTo(3);
+        assertThat(response.getCompletionPercentage()).isEqualTo("75.00%");
+        verify(habitProgressRepository, never()).findByHabitIdAndDateBetween(anyLong(), any(), any());
+    }
+
+    @Test
+    void shouldGetAnalyticsForAllHabitsFromSingleQuery() {
+        // Given
+        LocalDate today = LocalDate.now();
+        LocalDate startDate = today.minusDays(7);
+
+        when(habitRepository.summarizeProgressByUserId(1L, startDate, today)).thenReturn(List.of(
+                new HabitProgressSummary(1L, "Morning Run", Frequency.DAILY, 2, 4, 9, today, 3, 5),
+                new HabitProgressSummary(2L, "Evening Yoga", Frequency.DAILY, 1, 3, 3, today.minusDays(5), 0, 0)));
+
+        // When
+        List<HabitAnalyticsResponseDTO> response = habitService.getAnalyticsForAllHabits(1L, "week");
+
+        // Then
+        assertThat(response).hasSize(2);
+        assertThat(response.get(0).getHabitId()).isEqualTo(1L);
+        assertThat(response.get(0).getTotalTarget()).isEqualTo(6);
+        assertThat(response.get(0).getTotalCompleted()).isEqualTo(5);
+        assertThat(response.get(0).getCompletionPercentage()).isEqualTo("83.33%");
+        assertThat(response.get(1).getHabitName()).isEqualTo("Evening Yoga");
+        assertThat(response.get(0).getCurrentStreak()).isEqualTo(4);
+        assertThat(response.get(0).getLongestStreak()).isEqualTo(9);
+        assertThat(response.get(1).getCompletionPercentage()).isEqualTo("0.00%");
+        assertThat(response.get(1).getCurrentStreak()).isZero();
+        assertThat(response.get(1).getLongestStreak()).isEqualTo(3);
+
+        verify(habitRepository, never()).findById(anyLong());
+        verify(habitProgressRepository, never()).findByHabitIdAndDateBetween(anyLong(), any(), any());
+    }
+
+    // Тесты для series
+    @Test
+    void shouldPrepareSeriesForOwnedHabit() {
+        // Given
+        habit.setTargetAmount(2);
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 3, 31);
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit));
+
+        // When
+        HabitSeriesRequest request = ShardContext.call(3, () -> habitService.prepareSeries(1L, 1L, from, to, "Week"));
+
+        // Then
+        assertThat(request.bucket()).isEqualTo(SeriesBucket.WEEK);
+        assertThat(request.targetAmount()).isEqualTo(2);
+        assertThat(request.shard()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRejectSeriesWithInvalidBucketOrRange() {
+        LocalDate from = LocalDate.of(2025, 3, 1);
+
+        assertThatThrownBy(() -> habitService.prepareSeries(1L, 1L, from, from.plusDays(1), "year"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid bucket: year");
+        assertThatThrownBy(() -> habitService.prepareSeries(1L, 1L, from, from.minusDays(1), "day"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("'from' must not be after 'to'");
+
+        verify(habitRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void shouldStreamSeriesPointsWithTargets() {
+        // Given
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 3, 2);
+        HabitSeriesRequest request = new HabitSeriesRequest(1L, 3, from, to, SeriesBucket.DAY, 0);
+        when(habitProgressRepository.streamSeries(1L, from, to, "day"))
+                .thenReturn(Stream.of(seriesPoint(from, 4, 2), seriesPoint(to, 0, 0)));
+
+        // When
+        List<HabitSeriesPointDTO> points = new ArrayList<>();
+        habitService.streamSeries(request, points::add);
+
+        // Then
+        assertThat(points).hasSize(2);
+        assertThat(points.get(0).getTotalCompleted()).isEqualTo(4);
+        assertThat(points.get(0).getTotalTarget()).isEqualTo(6);
+        assertThat(points.get(1).getBucketStart()).isEqualTo(to);
+        assertThat(points.get(1).getTotalTarget()).isZero();
+    }
+
+    private static HabitSeriesPoint seriesPoint(LocalDate bucketStart, long completed, long entries) {
+        return new HabitSeriesPoint() {
+            @Override
+            public LocalDate getBucketStart() {
+                return bucketStart;
+            }
+
+            @Override
+            public long getCompleted() {
+                return completed;
+            }
+
+            @Override
+            public long getEntries() {
+                return entries;
+            }
+        };
+    }
+
+    // Тесты для getProgressHistory
+    @Test
+    void shouldReturnFirstProgressPageWithCursor() {
+        // Given
+        when(habitProgressRepository.findLatestEntries(1L, PageRequest.ofSize(2))).thenReturn(new SliceImpl<>(
+                List.of(new ProgressEntry(9L, LocalDate.of(2025, 3, 14), 2),
+                        new ProgressEntry(7L, LocalDate.of(2025, 3, 14), 1)),
+                PageRequest.ofSize(2), true));
+
+        // When
+        CursorPageDTO<HabitProgressResponseDTO> page = habitService.getProgressHistory(1L, 1L, null, 2);
+
+        // Then
+        assertThat(page.getItems()).extracting(HabitProgressResponseDTO::getId).containsExactly(9L, 7L);
+        assertThat(page.getItems().get(0).getHabitId()).isEqualTo(1L);
+        assertThat(page.isHasNext()).isTrue();
+        assertThat(page.getNextCursor()).isEqualTo(Cursors.encode("2025-03-14", 7));
+        verify(habitRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void shouldSeekPastCursorPosition() {
+        // Given
+        when(habitProgressRepository.findEntriesBefore(1L, LocalDate.of(2025, 3, 14), 7L, PageRequest.ofSize(2)))
+                .thenReturn(new SliceImpl<>(List.of(new ProgressEntry(3L, LocalDate.of(2025, 3, 1), 1)),
+                        PageRequest.ofSize(2), false));
+
+        // When
+        CursorPageDTO<HabitProgressResponseDTO> page =
+                habitService.getProgressHistory(1L, 1L, Cursors.encode("2025-03-14", 7), 2);
+
+        // Then
+        assertThat(page.getItems()).hasSize(1);
+        assertThat(page.isHasNext()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+        verify(habitProgressRepository, never()).findLatestEntries(anyLong(), any());
+    }
+
+    @Test
+    void shouldRejectMalformedCursorAndLimit() {
+
+        assertThatThrownBy(() -> habitService.getProgressHistory(1L, 1L, Cursors.encode("yesterday", 7), 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> habitService.getProgressHistory(1L, 1L, "%%%", 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> habitService.getProgressHistory(1L, 1L, null, 101))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Limit must be between 1 and 100");
+    }
+
+    private static HabitView view(Long id, Long userId) {
+        return new HabitView(id, "Morning Run", Frequency.DAILY, 1, userId, 3, 5, LocalDate.now());
+    }
+}
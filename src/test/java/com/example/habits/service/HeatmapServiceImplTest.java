@@ -0,0 +1,176 @@
+package com.example.habits.service;
+
+import com.example.habits.cache.HabitHeatmapCache;
+import com.example.habits.cache.HabitOwnershipIndex;
+import com.example.habits.domain.CompletionBitmap;
+import com.example.habits.domain.Frequency;
+import com.example.habits.domain.Habit;
+import com.example.habits.domain.HabitYearBitmap;
+import com.example.habits.domain.User;
+import com.example.habits.dto.habit.HabitHeatmapResponseDTO;
+import com.example.habits.repository.HabitProgressRepository;
+import com.example.habits.repository.HabitRepository;
+import com.example.habits.repository.HabitYearBitmapRepository;
+import com.example.habits.repository.projection.DailyProgressTotal;
+import com.example.habits.service.impl.HeatmapServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HeatmapServiceImplTest {
+
+    @Mock
+    private HabitRepository habitRepository;
+
+    @Mock
+    private HabitProgressRepository habitProgressRepository;
+
+    @Mock
+    private HabitYearBitmapRepository bitmapRepository;
+
+    @Spy
+    private HabitHeatmapCache heatmapCache = new HabitHeatmapCache(100, Duration.ofMinutes(1));
+
+    @Mock
+    private HabitOwnershipIndex ownershipIndex;
+
+    @InjectMocks
+    private HeatmapServiceImpl heatmapService;
+
+    private Habit habit;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doCallRealMethod().when(ownershipIndex).checkOwner(anyLong(), anyLong());
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+
+        habit = new Habit();
+        habit.setId(1L);
+        habit.setName("Morning Run");
+        habit.setFrequency(Frequency.DAILY);
+        habit.setTargetAmount(2);
+        habit.setUser(user);
+    }
+
+    @Test
+    void shouldRoundTripBitmapEncoding() {
+        CompletionBitmap bitmap = CompletionBitmap.empty()
+                .withDay(1, 3, true)
+                .withDay(200, 1000, false)
+                .withDay(366, 1, true);
+
+        CompletionBitmap decoded = CompletionBitmap.decode(bitmap.encode());
+
+        assertThat(decoded.isCompleted(1)).isTrue();
+        assertThat(decoded.isCompleted(200)).isFalse();
+        assertThat(decoded.isCompleted(366)).isTrue();
+        assertThat(decoded.amount(200)).isEqualTo(1000);
+        assertThat(decoded.completedDays()).isEqualTo(2);
+        assertThat(CompletionBitmap.empty().encode()).hasSize(46 + 366);
+    }
+
+    @Test
+    void shouldApplyProgressToExistingBitmap() {
+        LocalDate date = LocalDate.of(2025, 3, 10);
+        HabitYearBitmap row = new HabitYearBitmap(5L, 1L, 2025,
+                CompletionBitmap.empty().withDay(date.getDayOfYear(), 1, false).encode());
+        when(bitmapRepository.findForUpdate(1L, 2025)).thenReturn(Optional.of(row));
+        heatmapCache.get(1L, 2025, () -> CompletionBitmap.decode(row.getData()));
+
+        heatmapService.applyProgress(habit, date, 1);
+
+        CompletionBitmap stored = CompletionBitmap.decode(row.getData());
+        assertThat(stored.amount(date.getDayOfYear())).isEqualTo(2);
+        assertThat(stored.isCompleted(date.getDayOfYear())).isTrue();
+        assertThat(heatmapCache.get(1L, 2025)).isNull();
+        verify(bitmapRepository).save(row);
+        verify(habitProgressRepository, never()).findDailyTotals(anyLong(), any(), any());
+    }
+
+    @Test
+    void shouldBuildBitmapFromHistoryOnFirstWriteOfYear() {
+        LocalDate date = LocalDate.of(2025, 3, 10);
+        when(bitmapRepository.findForUpdate(1L, 2025)).thenReturn(Optional.empty());
+        when(habitProgressRepository.findDailyTotals(1L, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31)))
+                .thenReturn(List.of(new DailyProgressTotal(LocalDate.of(2025, 1, 2), 5, 1),
+                        new DailyProgressTotal(date, 1, 1)));
+
+        heatmapService.applyProgress(habit, date, 1);
+
+        ArgumentCaptor<HabitYearBitmap> captor = ArgumentCaptor.forClass(HabitYearBitmap.class);
+        verify(bitmapRepository).save(captor.capture());
+        CompletionBitmap stored = CompletionBitmap.decode(captor.getValue().getData());
+        assertThat(captor.getValue().getYear()).isEqualTo(2025);
+        assertThat(stored.isCompleted(2)).isTrue();
+        assertThat(stored.amount(date.getDayOfYear())).isEqualTo(1);
+        assertThat(stored.isCompleted(date.getDayOfYear())).isFalse();
+    }
+
+    @Test
+    void shouldServeHeatmapFromCacheAfterFirstLoad() {
+        when(ownershipIndex.ownerOf(1L)).thenReturn(1L);
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit));
+        when(bitmapRepository.findByHabitIdAndYear(1L, 2025)).thenReturn(Optional.of(
+                new HabitYearBitmap(5L, 1L, 2025, CompletionBitmap.empty().withDay(3, 2, true).encode())));
+
+        HabitHeatmapResponseDTO first = heatmapService.getHeatmap(1L, 1L, 2025);
+        HabitHeatmapResponseDTO second = heatmapService.getHeatmap(1L, 1L, 2025);
+
+        assertThat(first.getCompletedDays()).isEqualTo(1);
+        assertThat(first.getAmounts()[2]).isEqualTo(2);
+        assertThat(second.getEtag()).isEqualTo(first.getEtag());
+        verify(bitmapRepository, times(1)).findByHabitIdAndYear(1L, 2025);
+    }
+
+    @Test
+    void shouldRejectHeatmapOfAnotherUsersHabit() {
+        when(ownershipIndex.ownerOf(1L)).thenReturn(1L);
+
+        assertThatThrownBy(() -> heatmapService.getHeatmap(2L, 1L, 2025))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Unauthorized access to habit");
+
+        verify(habitRepository, never()).findById(anyLong());
+        verify(bitmapRepository, never()).findByHabitIdAndYear(anyLong(), anyInt());
+    }
+
+    @Test
+    void shouldRejectInvalidYear() {
+        assertThatThrownBy(() -> heatmapService.getHeatmap(1L, 1L, 10000))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid year: 10000");
+    }
+
+    @Test
+    void shouldDropPersistedAndCachedBitmapsOfRefreshedYears() {
+        heatmapCache.get(1L, 2024, CompletionBitmap::empty);
+        heatmapCache.get(1L, 2025, CompletionBitmap::empty);
+
+        heatmapService.refresh(1L, Set.of(2025));
+
+        verify(bitmapRepository).deleteByHabitIdAndYearIn(1L, Set.of(2025));
+        assertThat(heatmapCache.get(1L, 2024)).isNotNull();
+        assertThat(heatmapCache.get(1L, 2025)).isNull();
+    }
+}
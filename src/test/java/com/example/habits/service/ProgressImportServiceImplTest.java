@@ -0,0 +1,162 @@
+package com.example.habits.service;
+
+import com.example.habits.cache.HabitAnalyticsCache;
+import com.example.habits.cache.HabitOwnershipIndex;
+import com.example.habits.cache.HabitProgressHotStore;
+import com.example.habits.domain.Habit;
+import com.example.habits.dto.habit.HabitImportResponseDTO;
+import com.example.habits.repository.HabitProgressImportRepository;
+import com.example.habits.repository.HabitRepository;
+import com.example.habits.repository.ProgressImportStaging;
+import com.example.habits.service.impl.ProgressImportServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProgressImportServiceImplTest {
+
+    @Mock
+    private HabitRepository habitRepository;
+
+    @Mock
+    private HabitProgressImportRepository importRepository;
+
+    @Mock
+    private ProgressImportStaging staging;
+
+    @Mock
+    private StreakService streakService;
+
+    @Mock
+    private HeatmapService heatmapService;
+
+    @Spy
+    private HabitAnalyticsCache analyticsCache = new HabitAnalyticsCache(100);
+
+    @Mock
+    private HabitProgressHotStore hotStore;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private HabitOwnershipIndex ownershipIndex;
+
+    @InjectMocks
+    private ProgressImportServiceImpl importService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(ownershipIndex.ownerOf(1L)).thenReturn(1L);
+        lenient().doCallRealMethod().when(ownershipIndex).checkOwner(anyLong(), anyLong());
+        lenient().when(habitRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new Habit()));
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldStageCsvRowsAndMergeThemOnce() throws Exception {
+        when(importRepository.openStaging()).thenReturn(staging);
+        when(staging.finish()).thenReturn(3L);
+        when(importRepository.mergeStaging(1L)).thenReturn(2);
+
+        HabitImportResponseDTO response = importService.importProgress(1L, 1L, "csv",
+                body("date,completed_amount\n2024-01-01,2\n\n2024-01-01,1\n2024-01-02,0\n"));
+
+        assertThat(response).isEqualTo(new HabitImportResponseDTO(1L, 3, 2));
+        InOrder inOrder = inOrder(staging, habitRepository, importRepository, streakService);
+        inOrder.verify(staging).finish();
+        inOrder.verify(habitRepository).findByIdForUpdate(1L);
+        inOrder.verify(importRepository).mergeStaging(1L);
+        inOrder.verify(streakService).recomputeStreaks(1L);
+        verify(staging).add(LocalDate.of(2024, 1, 1), 2);
+        verify(staging).add(LocalDate.of(2024, 1, 1), 1);
+        verify(staging).add(LocalDate.of(2024, 1, 2), 0);
+        verify(importRepository, times(1)).mergeStaging(1L);
+        verify(streakService).recomputeStreaks(1L);
+        verify(heatmapService).refresh(1L, Set.of(2024));
+        verify(analyticsCache).invalidate(1L);
+        verify(hotStore).invalidate(1L);
+    }
+
+    @Test
+    void shouldStageNdjsonRows() throws Exception {
+        when(importRepository.openStaging()).thenReturn(staging);
+        when(staging.finish()).thenReturn(1L);
+        when(importRepository.mergeStaging(1L)).thenReturn(1);
+
+        importService.importProgress(1L, 1L, "ndjson", body("{\"date\":\"2023-05-06\",\"completedAmount\":4}\n"));
+
+        verify(staging).add(LocalDate.of(2023, 5, 6), 4);
+    }
+
+    @Test
+    void shouldRejectInvalidRowAndCancelCopy() throws Exception {
+        when(importRepository.openStaging()).thenReturn(staging);
+
+        assertThatThrownBy(() -> importService.importProgress(1L, 1L, "csv", body("2024-01-01,2\n2024-13-01,1\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Invalid row 2:");
+
+        verify(staging).cancel();
+        verify(importRepository, never()).mergeStaging(anyLong());
+        verify(streakService, never()).recomputeStreaks(anyLong());
+    }
+
+    @Test
+    void shouldRejectDayWhoseTotalOverflowsCompletedAmount() throws Exception {
+        when(importRepository.openStaging()).thenReturn(staging);
+
+        assertThatThrownBy(() -> importService.importProgress(1L, 1L, "csv",
+                body("2024-01-01,2147483647\n2024-01-02,5\n2024-01-01,1\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid row 3: total completed amount of 2024-01-01 exceeds 2147483647");
+
+        verify(staging).cancel();
+        verify(importRepository, never()).mergeStaging(anyLong());
+    }
+
+    @Test
+    void shouldRejectFutureDates() throws Exception {
+        when(importRepository.openStaging()).thenReturn(staging);
+
+        assertThatThrownBy(() -> importService.importProgress(1L, 1L, "csv",
+                body(LocalDate.now().plusDays(1) + ",1\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid row 1: date is in the future");
+
+        verify(staging, never()).add(any(), anyInt());
+    }
+
+    @Test
+    void shouldRejectImportIntoAnotherUsersHabit() throws Exception {
+        assertThatThrownBy(() -> importService.importProgress(2L, 1L, "csv", body("2024-01-01,2\n")))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Unauthorized access to habit");
+
+        verify(importRepository, never()).openStaging();
+    }
+}
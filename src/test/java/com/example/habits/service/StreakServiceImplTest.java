@@ -0,0 +1,153 @@
+package com.example.habits.service;
+
+import com.example.habits.cache.ResourceVersionCache;
+import com.example.habits.domain.Frequency;
+import com.example.habits.domain.Habit;
+import com.example.habits.domain.User;
+import com.example.habits.repository.HabitProgressRepository;
+import com.example.habits.repository.HabitRepository;
+import com.example.habits.repository.UserRepository;
+import com.example.habits.repository.projection.DailyProgressTotal;
+import com.example.habits.service.impl.StreakServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StreakServiceImplTest {
+
+    @Mock
+    private HabitRepository habitRepository;
+
+    @Mock
+    private HabitProgressRepository habitProgressRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ResourceVersionCache versionCache;
+
+    @InjectMocks
+    private StreakServiceImpl streakService;
+
+    private Habit habit;
+
+    @BeforeEach
+    void setUp() {
+        habit = new Habit();
+        habit.setId(1L);
+        habit.setName("Morning Run");
+        habit.setFrequency(Frequency.DAILY);
+        habit.setTargetAmount(2);
+        User user = new User();
+        user.setId(7L);
+        habit.setUser(user);
+    }
+
+    @Test
+    void shouldCompletePeriodOnlyWhenTargetReached() {
+        LocalDate day = LocalDate.of(2025, 3, 10);
+
+        streakService.applyProgress(habit, day, 1);
+        assertThat(habit.getCurrentStreak()).isZero();
+        assertThat(habit.getLastCompletedPeriod()).isNull();
+
+        streakService.applyProgress(habit, day, 1);
+        assertThat(habit.getCurrentStreak()).isEqualTo(1);
+        assertThat(habit.getLastCompletedPeriod()).isEqualTo(day);
+
+        streakService.applyProgress(habit, day, 5);
+        assertThat(habit.getCurrentStreak()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldExtendStreakOnConsecutiveDaysAndResetAfterGap() {
+        LocalDate day = LocalDate.of(2025, 3, 10);
+
+        streakService.applyProgress(habit, day, 2);
+        streakService.applyProgress(habit, day.plusDays(1), 2);
+        streakService.applyProgress(habit, day.plusDays(2), 2);
+        assertThat(habit.getCurrentStreak()).isEqualTo(3);
+        assertThat(habit.getLongestStreak()).isEqualTo(3);
+
+        streakService.applyProgress(habit, day.plusDays(5), 2);
+        assertThat(habit.getCurrentStreak()).isEqualTo(1);
+        assertThat(habit.getLongestStreak()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldAccumulateWeeklyProgressAcrossDays() {
+        habit.setFrequency(Frequency.WEEKLY);
+        habit.setTargetAmount(3);
+        LocalDate monday = LocalDate.of(2025, 3, 10);
+
+        streakService.applyProgress(habit, monday, 1);
+        streakService.applyProgress(habit, monday.plusDays(2), 2);
+        assertThat(habit.getCurrentStreak()).isEqualTo(1);
+        assertThat(habit.getLastCompletedPeriod()).isEqualTo(monday);
+
+        streakService.applyProgress(habit, monday.plusDays(8), 3);
+        assertThat(habit.getCurrentStreak()).isEqualTo(2);
+        assertThat(habit.getLastCompletedPeriod()).isEqualTo(monday.plusWeeks(1));
+    }
+
+    @Test
+    void shouldRecomputeStreaksFromHistory() {
+        habit.setCurrentStreak(42);
+        habit.setLongestStreak(42);
+        LocalDate day = LocalDate.of(2025, 3, 10);
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit));
+        when(habitProgressRepository.findAllDailyTotals(1L)).thenReturn(List.of(
+                new DailyProgressTotal(day, 2, 1),
+                new DailyProgressTotal(day.plusDays(1), 3, 2),
+                new DailyProgressTotal(day.plusDays(2), 1, 1),
+                new DailyProgressTotal(day.plusDays(3), 2, 1)));
+
+        streakService.recomputeStreaks(1L);
+
+        assertThat(habit.getCurrentStreak()).isEqualTo(1);
+        assertThat(habit.getLongestStreak()).isEqualTo(2);
+        assertThat(habit.getLastCompletedPeriod()).isEqualTo(day.plusDays(3));
+        verify(habitRepository).save(habit);
+        verify(userRepository).incrementHabitsVersion(7L);
+        verify(versionCache).invalidateHabit(1L, 7L);
+    }
+
+    @Test
+    void shouldNotBumpHabitsVersionWhenStreaksUnchanged() {
+        LocalDate day = LocalDate.of(2025, 3, 10);
+        habit.setCurrentStreak(1);
+        habit.setLongestStreak(1);
+        habit.setLastCompletedPeriod(day);
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(habit));
+        when(habitProgressRepository.findAllDailyTotals(1L)).thenReturn(List.of(new DailyProgressTotal(day, 2, 1)));
+
+        streakService.recomputeStreaks(1L);
+
+        verify(userRepository, never()).incrementHabitsVersion(7L);
+        verify(versionCache).invalidateHabit(1L, 7L);
+    }
+
+    @Test
+    void shouldTreatStreakAsBrokenWhenPreviousPeriodMissed() {
+        LocalDate today = LocalDate.of(2025, 3, 12);
+
+        assertThat(Frequency.DAILY.isStreakAlive(today.minusDays(1), today)).isTrue();
+        assertThat(Frequency.DAILY.isStreakAlive(today.minusDays(2), today)).isFalse();
+        assertThat(Frequency.WEEKLY.isStreakAlive(LocalDate.of(2025, 3, 3), today)).isTrue();
+        assertThat(Frequency.WEEKLY.isStreakAlive(LocalDate.of(2025, 2, 24), today)).isFalse();
+    }
+}
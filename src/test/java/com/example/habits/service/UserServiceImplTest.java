@@ -1,22 +1,39 @@
 package com.example.habits.service;
 
+import com.example.habits.cache.ResourceVersionCache;
+import com.example.habits.cache.UserSearchCache;
+import com.example.habits.datasource.ShardDirectory;
 import com.example.habits.domain.User;
+import com.example.habits.dto.page.CursorPageDTO;
 import com.example.habits.dto.user.ProfileResponseDTO;
 import com.example.habits.dto.user.UpdateProfileRequestDTO;
+import com.example.habits.exception.ConflictException;
+import com.example.habits.exception.PreconditionRequiredException;
+import com.example.habits.repository.AccountPurgeRepository;
+import com.example.habits.repository.RefreshTokenRepository;
 import com.example.habits.repository.UserRepository;
+import com.example.habits.repository.UserSearchRepository;
+import com.example.habits.repository.projection.UserProfileView;
+import com.example.habits.repository.projection.UserVersion;
+import com.example.habits.repository.projection.VersionedProfile;
 import com.example.habits.service.impl.UserServiceImpl;
+import com.example.habits.util.Cursors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -33,6 +50,24 @@ class UserServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private AccountPurgeRepository accountPurgeRepository;
+
+    @Mock
+    private ResourceVersionCache versionCache;
+
+    @Mock
+    private UserSearchRepository userSearchRepository;
+
+    @Spy
+    private UserSearchCache searchCache = new UserSearchCache(3, 100, Duration.ofMinutes(1));
+
+    @Spy
+    private ShardDirectory shardDirectory = new ShardDirectory(Optional.empty(), 100, Duration.ofMinutes(10));
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -92,10 +127,10 @@ class UserServiceImplTest {
     @Test
     void shouldGetProfileSuccessfully() {
         // Given
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
 
         // When
-        ProfileResponseDTO response = userService.getProfile("testuser");
+        ProfileResponseDTO response = userService.getProfile(1L);
 
         // Then
         assertThat(response).isNotNull();
@@ -104,31 +139,48 @@ class UserServiceImplTest {
         assertThat(response.getEmail()).isEqualTo("test@example.com");
         assertThat(response.getFullName()).isEqualTo("Test User");
 
-        verify(userRepository).findByUsername("testuser");
+        verify(userRepository).findById(1L);
     }
 
     @Test
-    void shouldThrowExceptionWhenUserNotFoundByUsername() {
+    void shouldThrowExceptionWhenOwnProfileNotFound() {
         // Given
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
 
         // When & Then
-        assertThatThrownBy(() -> userService.getProfile("testuser"))
+        assertThatThrownBy(() -> userService.getProfile(1L))
                 .isInstanceOf(UsernameNotFoundException.class)
-                .hasMessage("User not found with username: testuser");
+                .hasMessage("User not found with id: 1");
 
-        verify(userRepository).findByUsername("testuser");
+        verify(userRepository).findById(1L);
+    }
+
+    // Тесты для getProfileEtag
+    @Test
+    void shouldBuildProfileEtagFromCachedVersion() {
+        when(versionCache.user(1L)).thenReturn(new UserVersion(1L, 4, 0));
+
+        assertThat(userService.getProfileEtag(1L)).contains("\"u1-4\"");
+        assertThat(userService.getOwnProfileEtag(1L)).isEqualTo("\"u1-4\"");
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void shouldReturnNoProfileEtagForUnknownUser() {
+        assertThat(userService.getProfileEtag(9L)).isEmpty();
+        assertThatThrownBy(() -> userService.getOwnProfileEtag(9L))
+                .isInstanceOf(UsernameNotFoundException.class);
     }
 
     // Тесты для updateUser
     @Test
     void shouldUpdateUserSuccessfully() {
         // Given
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userRepository.updateProfile(1L, "newtest@example.com", "New Test User", null)).thenReturn(
+                Optional.of(new VersionedProfile(1L, "testuser", "newtest@example.com", "New Test User", 1)));
 
         // When
-        ProfileResponseDTO response = userService.updateUser(1L, updateProfileRequest);
+        ProfileResponseDTO response = userService.updateUser(1L, updateProfileRequest, "*");
 
         // Then
         assertThat(response).isNotNull();
@@ -137,21 +189,109 @@ class UserServiceImplTest {
         assertThat(response.getFullName()).isEqualTo("New Test User");
         assertThat(response.getUsername()).isEqualTo("testuser");
 
-        verify(userRepository).findById(1L);
-        verify(userRepository).save(any(User.class));
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).save(any(User.class));
+        verify(versionCache).invalidateUser(1L);
+    }
+
+    @Test
+    void shouldUpdateOnlyVersionNamedInIfMatch() {
+        // Given
+        when(userRepository.updateProfile(1L, "newtest@example.com", "New Test User", 4L)).thenReturn(
+                Optional.of(new VersionedProfile(1L, "testuser", "newtest@example.com", "New Test User", 5)));
+
+        // When
+        ProfileResponseDTO response = userService.updateUser(1L, updateProfileRequest, "\"u1-4\"");
+
+        // Then
+        assertThat(response.getEmail()).isEqualTo("newtest@example.com");
+    }
+
+    @Test
+    void shouldThrowConflictWhenVersionChanged() {
+        // Given
+        when(userRepository.updateProfile(1L, "newtest@example.com", "New Test User", 4L)).thenReturn(Optional.empty());
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(new UserVersion(1L, 5, 0)));
+
+        // When & Then
+        assertThatThrownBy(() -> userService.updateUser(1L, updateProfileRequest, "\"u1-4\""))
+                .isInstanceOf(ConflictException.class)
+                .hasMessage("Profile was modified concurrently");
+        verify(versionCache, never()).invalidateUser(anyLong());
+    }
+
+    @Test
+    void shouldThrowConflictWhenEmailTaken() {
+        // Given
+        when(userRepository.updateProfile(1L, "newtest@example.com", "New Test User", null))
+                .thenThrow(new DuplicateKeyException("users_email_key"));
+
+        // When & Then
+        assertThatThrownBy(() -> userService.updateUser(1L, updateProfileRequest, "*"))
+                .isInstanceOf(ConflictException.class)
+                .hasMessage("Email is already in use");
+    }
+
+    @Test
+    void shouldThrowConflictWhenEmailClaimedOnAnotherShard() {
+        // Given
+        doReturn(2).when(shardDirectory).shardCount();
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.findByEmail("newtest@example.com")).thenReturn(Optional.empty());
+        doReturn(false).when(shardDirectory).claimEmail("newtest@example.com", "testuser", 0);
+
+        // When & Then
+        assertThatThrownBy(() -> userService.updateUser(1L, updateProfileRequest, "*"))
+                .isInstanceOf(ConflictException.class)
+                .hasMessage("Email is already in use");
+        verify(userRepository, never()).updateProfile(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void shouldReleasePreviousEmailClaimAfterUpdateAcrossShards() {
+        // Given
+        doReturn(2).when(shardDirectory).shardCount();
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.findByEmail("newtest@example.com")).thenReturn(Optional.empty());
+        doReturn(true).when(shardDirectory).claimEmail("newtest@example.com", "testuser", 0);
+        doNothing().when(shardDirectory).releaseEmailsExcept("testuser", "newtest@example.com");
+        when(userRepository.updateProfile(1L, "newtest@example.com", "New Test User", null)).thenReturn(
+                Optional.of(new VersionedProfile(1L, "testuser", "newtest@example.com", "New Test User", 1)));
+
+        // When
+        userService.updateUser(1L, updateProfileRequest, "*");
+
+        // Then
+        verify(shardDirectory).releaseEmailsExcept("testuser", "newtest@example.com");
+        verify(shardDirectory, never()).releaseEmail(any(), any());
+    }
+
+    @Test
+    void shouldRequireIfMatch() {
+        assertThatThrownBy(() -> userService.updateUser(1L, updateProfileRequest, null))
+                .isInstanceOf(PreconditionRequiredException.class)
+                .hasMessage("If-Match header is required");
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void shouldRejectIfMatchOfOtherProfile() {
+        assertThatThrownBy(() -> userService.updateUser(1L, updateProfileRequest, "\"u2-4\""))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid If-Match header");
+        verifyNoInteractions(userRepository);
     }
 
     @Test
     void shouldThrowExceptionWhenUserNotFoundDuringUpdate() {
         // Given
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.updateProfile(1L, "newtest@example.com", "New Test User", null)).thenReturn(Optional.empty());
 
         // When & Then
-        assertThatThrownBy(() -> userService.updateUser(1L, updateProfileRequest))
+        assertThatThrownBy(() -> userService.updateUser(1L, updateProfileRequest, "*"))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("User not found with id: 1");
 
-        verify(userRepository).findById(1L);
         verify(userRepository, never()).save(any(User.class));
     }
 
@@ -159,49 +299,126 @@ class UserServiceImplTest {
     @Test
     void shouldDeleteUserSuccessfully() {
         // Given
-        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.markDeleted(eq(1L), any(Instant.class))).thenReturn(1);
 
         // When
         userService.deleteUser(1L);
 
         // Then
-        verify(userRepository).existsById(1L);
-        verify(userRepository).deleteById(1L);
+        verify(refreshTokenRepository).deleteByUserId(1L);
+        verify(accountPurgeRepository).schedule(1L);
+        verify(userRepository, never()).deleteById(anyLong());
+        verify(versionCache).evictUser(1L);
     }
 
     @Test
     void shouldThrowExceptionWhenUserNotFoundDuringDelete() {
         // Given
-        when(userRepository.existsById(1L)).thenReturn(false);
+        when(userRepository.markDeleted(eq(1L), any(Instant.class))).thenReturn(0);
 
         // When & Then
         assertThatThrownBy(() -> userService.deleteUser(1L))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("User not found with id: 1");
 
-        verify(userRepository).existsById(1L);
         verify(userRepository, never()).deleteById(anyLong());
+        verifyNoInteractions(accountPurgeRepository);
     }
 
     // Тесты для getAllUsers
     @Test
     void shouldGetAllUsersSuccessfully() {
         // Given
-        List<User> users = Collections.singletonList(user);
-        Page<User> userPage = new PageImpl<>(users);
-        when(userRepository.findAll(PageRequest.of(0, 10))).thenReturn(userPage);
+        List<UserProfileView> users = Collections.singletonList(
+                new UserProfileView(1L, "testuser", "test@example.com", "Test User"));
+        when(userRepository.findProfilesAfter(0L, PageRequest.ofSize(10)))
+                .thenReturn(new SliceImpl<>(users, PageRequest.ofSize(10), true));
 
         // When
-        List<ProfileResponseDTO> response = userService.getAllUsers(10, 0);
+        CursorPageDTO<ProfileResponseDTO> response = userService.getAllUsers(null, 10);
+
+        // Then
+        assertThat(response.getItems()).hasSize(1);
+        assertThat(response.getItems().get(0).getId()).isEqualTo(1L);
+        assertThat(response.getItems().get(0).getUsername()).isEqualTo("testuser");
+        assertThat(response.getItems().get(0).getEmail()).isEqualTo("test@example.com");
+        assertThat(response.getItems().get(0).getFullName()).isEqualTo("Test User");
+        assertThat(response.isHasNext()).isTrue();
+        assertThat(response.getNextCursor()).isEqualTo(Cursors.encode(1L));
+
+        verify(userRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void shouldGetUsersAfterCursor() {
+        // Given
+        when(userRepository.findProfilesAfter(1L, PageRequest.ofSize(10)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(10), false));
+
+        // When
+        CursorPageDTO<ProfileResponseDTO> response = userService.getAllUsers(Cursors.encode(1L), 10);
+
+        // Then
+        assertThat(response.getItems()).isEmpty();
+        assertThat(response.isHasNext()).isFalse();
+        assertThat(response.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldRejectInvalidUserCursorAndLimit() {
+        assertThatThrownBy(() -> userService.getAllUsers(Cursors.encode("one"), 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> userService.getAllUsers(null, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Limit must be between 1 and 100");
+        verifyNoInteractions(userRepository);
+    }
+
+    // Тесты для searchUsers
+    @Test
+    void shouldSearchUsersWithNormalizedQuery() {
+        // Given
+        when(userSearchRepository.search("test user", 20)).thenReturn(List.of(
+                new UserProfileView(1L, "testuser", "test@example.com", "Test User")));
+
+        // When
+        List<ProfileResponseDTO> response = userService.searchUsers("  Test User ", 20);
 
         // Then
         assertThat(response).hasSize(1);
         assertThat(response.get(0).getId()).isEqualTo(1L);
         assertThat(response.get(0).getUsername()).isEqualTo("testuser");
-        assertThat(response.get(0).getEmail()).isEqualTo("test@example.com");
         assertThat(response.get(0).getFullName()).isEqualTo("Test User");
+    }
 
-        verify(userRepository).findAll(PageRequest.of(0, 10));
+    @Test
+    void shouldCacheShortQueriesOnly() {
+        when(userSearchRepository.search("te", 20)).thenReturn(List.of(
+                new UserProfileView(1L, "testuser", "test@example.com", "Test User")));
+        when(userSearchRepository.search("testu", 20)).thenReturn(List.of());
+
+        assertThat(userService.searchUsers("te", 20)).hasSize(1);
+        assertThat(userService.searchUsers("TE", 20)).hasSize(1);
+        userService.searchUsers("testu", 20);
+        userService.searchUsers("testu", 20);
+
+        verify(userSearchRepository, times(1)).search("te", 20);
+        verify(userSearchRepository, times(2)).search("testu", 20);
+    }
+
+    @Test
+    void shouldRejectInvalidSearchQueryAndLimit() {
+        assertThatThrownBy(() -> userService.searchUsers(" t ", 20))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Query must be between 2 and 100 characters");
+        assertThatThrownBy(() -> userService.searchUsers("t".repeat(101), 20))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Query must be between 2 and 100 characters");
+        assertThatThrownBy(() -> userService.searchUsers("test", 51))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Limit must be between 1 and 50");
+        verifyNoInteractions(userSearchRepository);
     }
 
     // Тесты для loadUserByUsername
@@ -236,35 +453,13 @@ class UserServiceImplTest {
         verify(userRepository).findByUsername("testuser");
     }
 
-    // Тесты для getCurrentUser
     @Test
-    void shouldGetCurrentUserSuccessfully() {
-        // Given
+    void shouldNotLoadDeletedUser() {
+        user.setDeletedAt(Instant.now());
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
 
-        // When
-        User currentUser = userService.getCurrentUser("testuser");
-
-        // Then
-        assertThat(currentUser).isNotNull();
-        assertThat(currentUser.getId()).isEqualTo(1L);
-        assertThat(currentUser.getUsername()).isEqualTo("testuser");
-        assertThat(currentUser.getEmail()).isEqualTo("test@example.com");
-        assertThat(currentUser.getFullName()).isEqualTo("Test User");
-
-        verify(userRepository).findByUsername("testuser");
-    }
-
-    @Test
-    void shouldThrowExceptionWhenUserNotFoundDuringGetCurrentUser() {
-        // Given
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
-
-        // When & Then
-        assertThatThrownBy(() -> userService.getCurrentUser("testuser"))
-                .isInstanceOf(UsernameNotFoundException.class)
-                .hasMessage("User not found with username: testuser");
-
-        verify(userRepository).findByUsername("testuser");
+        assertThatThrownBy(() -> userService.loadUserByUsername("testuser"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThat(userService.getUserById(1L)).isEmpty();
     }
-}
\ No newline at end of file
+}